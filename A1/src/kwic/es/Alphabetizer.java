@@ -31,6 +31,7 @@ package kwic.es;
 
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Random;
 
 /**
  *  Similarly to CircularShifter class, Alphabetizer class implemets the "Observer" 
@@ -43,6 +44,14 @@ import java.util.Observer;
  *  LineStorageWrapper object whenever its internal state is changed (i.e., whenever a new circular 
  *  shift has been added) is catched by Alphabetizer object. In turn, this leads to 
  *  sorting the circular shifts alphabetically.
+ *  <p>
+ *  The sorted shifts are not kept in the observed LineStorageWrapper object, which
+ *  keeps the shifts in the order they were added. Instead, the Alphabetizer keeps the
+ *  shifts in a balanced binary search tree (a treap) ordered by the text of the shifts.
+ *  Each node of the tree knows the number of nodes in its subtree, thus the shift at
+ *  any position in the sorted order can be found by a single walk from the root. Adding
+ *  a shift, deleting a shift and getting the shift at a position all take O(log n)
+ *  expected time, and the Alphabetizer never changes the observed object.
  *  @author  dhelic
  *  @version $Id$
 */
@@ -56,6 +65,20 @@ public class Alphabetizer implements Observer{
  */
 //----------------------------------------------------------------------
 
+/**
+ * Root of the tree of sorted shifts, null if there are no shifts
+ *
+ */
+
+  private Node root_;
+
+/**
+ * Source of the random node priorities, which keep the tree balanced
+ *
+ */
+
+  private Random random_ = new Random(0);
+
 //----------------------------------------------------------------------
 /**
  * Constructors
@@ -75,7 +98,7 @@ public class Alphabetizer implements Observer{
  */
 
   public void update(Observable observable, Object arg){
-    
+
         // cast to the line storage object
     LineStorageWrapper shifts = (LineStorageWrapper) observable;
 
@@ -85,37 +108,194 @@ public class Alphabetizer implements Observer{
         // take actions depending on the type of the change
     switch(event.getType()){
 
-          // if this is an ADD change sort shifts
+          // if this is an ADD change insert all new shifts into the tree,
+          // the new shifts are the last shifts in the storage
     case LineStorageChangeEvent.ADD:
-      
-          // get the count of shifts
       int count = shifts.getLineCount();
-      
-          // get the last added line
-      String shift = shifts.getLineAsString(count - 1);
-          
-          // iterate through all shifts and insert the new shift on the proper
-          // position
-      for(int i = 0; i < (count - 1); i++){
-        
-            // if the new shift is "less than" the current shift insert it
-            // on the position of the current shift
-        if(shift.compareTo(shifts.getLineAsString(i)) <= 0){
-           shifts.insertLine(shifts.getLine(count - 1), i);
-
-               // delete the new shift from the last position
-               // the last position is now equal to count since
-               // we inserted the new shift once more
-           shifts.deleteLine(count);
-           break;
-        }           
-      }
+      for(int i = count - event.getCount(); i < count; i++)
+        insert(shifts.getLine(i), shifts.getLineAsString(i));
+      break;
+
+          // if this is a DELETE change remove the deleted shift from the tree,
+          // the event holds the text of the deleted shift
+    case LineStorageChangeEvent.DELETE:
+      delete(event.getArg());
       break;
     default:
       break;      
     }
   }
 
+//----------------------------------------------------------------------
+/**
+ * Gets the sorted shift from the specified position.
+ * @param line position of the shift in the sorted order
+ * @return String[]
+ * @see #getLineAsString
+ * @see #getLineCount
+ */
+
+  public String[] getLine(int line){
+    return getNode(line).words_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the sorted shift from the specified position as a single String.
+ * @param line position of the shift in the sorted order
+ * @return String
+ * @see #getLine
+ * @see #getLineCount
+ */
+
+  public String getLineAsString(int line){
+    return getNode(line).text_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of sorted shifts
+ * @return int
+ */
+
+  public int getLineCount(){
+    return size(root_);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inserts a shift into the tree. The shift is put before all shifts
+ * which are equal to it.
+ * @param words words of the shift
+ * @param text text of the shift
+ * @return void
+ */
+
+  private void insert(String[] words, String text){
+    Node[] parts = split(root_, text);
+    Node node = new Node(words, text, random_.nextInt());
+    root_ = merge(merge(parts[0], node), parts[1]);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Deletes a shift with the specified text from the tree. Nothing is done
+ * if there is no such shift.
+ * @param text text of the shift
+ * @return void
+ */
+
+  private void delete(String text){
+    Node[] parts = split(root_, text);
+
+        // the first node not less than the text is the leftmost
+        // node of the right part
+    Node parent = null;
+    Node node = parts[1];
+    while(node != null && node.left_ != null){
+      parent = node;
+      node = node.left_;
+    }
+    if(node != null && node.text_.equals(text)){
+
+          // remove the node and decrement the sizes on the path to it
+      if(parent == null)
+        parts[1] = node.right_;
+      else{
+        for(Node current = parts[1]; current != node; current = current.left_)
+          current.size_--;
+        parent.left_ = node.right_;
+      }
+    }
+    root_ = merge(parts[0], parts[1]);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the node from the specified position in the sorted order.
+ * @param line position of the node
+ * @return Node
+ */
+
+  private Node getNode(int line){
+    if(line < 0 || line >= size(root_))
+      throw new IndexOutOfBoundsException("Line: " + line + ", Count: " + size(root_));
+    Node node = root_;
+    while(true){
+      int left = size(node.left_);
+      if(line < left)
+        node = node.left_;
+      else if(line == left)
+        return node;
+      else{
+        line -= left + 1;
+        node = node.right_;
+      }
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Splits a tree into two trees, the first one holds all nodes less than
+ * the text, the second one all other nodes.
+ * @param node root of the tree
+ * @param text text where the tree is split
+ * @return Node[] roots of the two trees
+ */
+
+  private Node[] split(Node node, String text){
+    if(node == null)
+      return new Node[2];
+    Node[] parts;
+    if(node.text_.compareTo(text) < 0){
+      parts = split(node.right_, text);
+      node.right_ = parts[0];
+      parts[0] = node;
+    }else{
+      parts = split(node.left_, text);
+      node.left_ = parts[1];
+      parts[1] = node;
+    }
+    node.update();
+    return parts;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Merges two trees, all nodes of the first tree must not be greater than
+ * the nodes of the second tree.
+ * @param left root of the first tree
+ * @param right root of the second tree
+ * @return Node root of the merged tree
+ */
+
+  private Node merge(Node left, Node right){
+    if(left == null)
+      return right;
+    if(right == null)
+      return left;
+    if(left.priority_ > right.priority_){
+      left.right_ = merge(left.right_, right);
+      left.update();
+      return left;
+    }else{
+      right.left_ = merge(left, right.left_);
+      right.update();
+      return right;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of nodes in a tree
+ * @param node root of the tree
+ * @return int
+ */
+
+  private static int size(Node node){
+    return (node == null) ? 0 : node.size_;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Inner classes
@@ -123,4 +303,32 @@ public class Alphabetizer implements Observer{
  */
 //----------------------------------------------------------------------
 
+/**
+ * A node of the tree holds a shift, a random priority and the number
+ * of nodes in its subtree. The priority of a node is not less than the
+ * priorities of its children.
+ *
+ */
+
+  private static class Node{
+
+    private String[] words_;
+    private String text_;
+    private int priority_;
+    private int size_ = 1;
+    private Node left_;
+    private Node right_;
+
+    Node(String[] words, String text, int priority){
+      words_ = words;
+      text_ = text;
+      priority_ = priority;
+    }
+
+        // recompute the size from the children
+    void update(){
+      size_ = 1 + size(left_) + size(right_);
+    }
+  }
+
 }
@@ -125,12 +125,12 @@ public class CircularShifter implements Observer {
 	private void deleteShifts(String[] line) {
 		ArrayList<String[]> curr_shifts = this.toShifts(line);
 		for (String[] shift : curr_shifts) {
-			for (int i = 0; i < shifts_.getLineCount(); i++) {
-				if (LineStorage.compare(shift, shifts_.getLine(i))) {
-					shifts_.deleteLine(i);
-					break;
-				}
-			}
+			// look up the shift in the content index of the storage, the
+			// order of the stored shifts does not matter since the
+			// alphabetizer keeps its own order
+			int i = shifts_.findLine(shift);
+			if (i >= 0)
+				shifts_.removeLine(i);
 		}
 	}
 
@@ -150,14 +150,16 @@ public class CircularShifter implements Observer {
 		// of the new line and add them to shifts storage
 		case LineStorageChangeEvent.ADD:
 
-			// get the last added line
-			String[] line = lines.getLine(lines.getLineCount() - 1);
-			curr_shifts = this.toShifts(line);
+			// make the shifts of all lines added by this change
+			curr_shifts = new ArrayList<String[]>();
+			for (int i = lines.getLineCount() - event.getCount(); i < lines
+					.getLineCount(); i++)
+				curr_shifts.addAll(this.toShifts(lines.getLine(i)));
 
-			// add the new shift to the storage
-			for (String[] line_rep : curr_shifts) {
-				shifts_.addLine(line_rep);
-			}
+			// add the new shifts to the storage at once, so that
+			// they are sorted only once
+			shifts_.addLines(curr_shifts.toArray(new String[curr_shifts
+					.size()][]));
 			break;
 		// New Added===========================
 		case LineStorageChangeEvent.DELETE:
@@ -25,9 +25,7 @@
 
 package kwic.es;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -63,8 +61,8 @@ import java.util.Map;
  *  declare interest in tracking these changes. Obviously, in the current system 
  *  Alphabetizer module declares such interest. Thus, upon receiving a notification
  *  event stating that the new circular shift was added to Shifted Line Storage module, 
- *  Alphabetizer module sorts this circular shift. The sorted shifts are kept in
- *  Shifted Line Storage as well. Once when Input module has finished with parsing
+ *  Alphabetizer module sorts this circular shift. The sorted shifts are kept by
+ *  Alphabetizer module itself. Once when Input module has finished with parsing
  *  procedure, which implies that all circular shifts have been created and sorted
  *  (because of notification mechanism) Outpur module prints out the sorted shifts.
  *  In the current implementation an object of the KWIC class creates and initializes
@@ -81,10 +79,10 @@ import java.util.Map;
  *  and stores them into the line storage for circular shifts
  *  <li>An instance of Alphabetizer class which declares its interest in
  *  changes to the line storage for circular shifts. Thus, whenever it receives a
- *  message that a new circular shift has been added it sorts the line storage for
- *  circular shifts
- *  <li>An instance of Output class which prints all shifts from the line 
- *  storage for circular shifts.
+ *  message that a new circular shift has been added it inserts the shift into
+ *  its sorted shifts
+ *  <li>An instance of Output class which prints all shifts in the order kept by
+ *  the Alphabetizer instance.
  *  Further, the KWIC class provides also the main method which checks the command line
  *  arguments.
  *  @author  dhelic
@@ -118,7 +116,8 @@ public class KWIC{
 /**
  * Parses the data, makes shifts and sorts them. At the end prints the
  * sorted shifts.
- * @param file name of the input file
+ * @param file name of the input file or directory loaded at the start,
+ * an empty string if nothing should be loaded
  * @return void
  * @throws IOException 
  */
@@ -154,27 +153,62 @@ public class KWIC{
 
         // line printer
     Output output = new Output();
+
+        // load the whole input file or directory at once if one has been
+        // specified, the observers make the shifts, sort them and index
+        // the words only once
+    if(file.length() > 0)
+      input.parseAll(file, lines);
+
+        // if the data has been read from the standard input there are no
+        // commands left, print the sorted shifts
+    if(file.length() > 0 && Input.isStandardInput(file)){
+      output.print(alphabetizer);
+      return;
+    }
+
     while (true) {
-		System.out.println("Add, Delete, Print, Index, Quit: ");
-		BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in));
-		switch (Character.toLowerCase(stdin.readLine().charAt(0))) {
+		System.out.println("Add, Load, Delete, Print, Index, Quit: ");
+		// the commands are read by the input, which reads the data of the
+		// standard input too
+		// the end of the standard input quits the program
+		String command = input.readLine();
+		if (command == null)
+			return;
+		if (command.length() == 0)
+			continue;
+		switch (Character.toLowerCase(command.charAt(0))) {
 		case 'a':
 			input.parse(file, lines);
 			break;
+		case 'l':
+			// load a whole file, directory or the rest of the standard input
+			String path = input.readLine();
+			if (path == null)
+				return;
+			input.parseAll(path, lines);
+			// the standard input is at its end, print the sorted shifts
+			if (Input.isStandardInput(path)) {
+				output.print(alphabetizer);
+				return;
+			}
+			break;
 		case 'd':
-			String lineToDel = stdin.readLine();
+			String lineToDel = input.readLine();
+			if (lineToDel == null)
+				return;
 			int lineIndex = lines.findLine(lineToDel);
 			if (lineIndex < 0) {
 				System.out.println("No lines are deleted");
 				break;
 			}
-			lines.deleteLine(lineIndex);
+			lines.removeLine(lineIndex);
 		case 'i':
 			output.print(windex);
 			break;
 		case 'p':
 			// print sorted shifts
-		    output.print(shifts);
+		    output.print(alphabetizer);
 			break;
 		case 'q':
 			return;
@@ -185,26 +219,25 @@ public class KWIC{
 
 //----------------------------------------------------------------------
 /**
- * Main function checks the command line arguments. The program expects 
- * exactly one command line argument specifying the name of the file 
- * that contains the data. If the program has not been started with 
- * proper command line arguments, main function exits
- * with an error message. Otherwise, a KWIC instance is created and program
- * control is passed to it.
+ * Main function checks the command line arguments. The program accepts 
+ * at most one command line argument specifying the name of the file or
+ * directory that contains the data, or "-" for the standard input. The
+ * data is loaded before the first command is read. If the program has been
+ * started with more arguments, main function exits with an error message.
+ * Otherwise, a KWIC instance is created and program control is passed to it.
  * @param args command line arguments
  * @return void
  * @throws IOException 
  */
 
   public static void main(String[] args) throws IOException{
-//    if(args.length != 1){
-//      System.err.println("KWIC Usage: java kwic.ms.KWIC file_name");
-//      System.exit(1);
-//    }
+    if(args.length > 1){
+      System.err.println("KWIC Usage: java kwic.es.KWIC [file_name]");
+      System.exit(1);
+    }
 
     KWIC kwic = new KWIC();
-//    kwic.execute(args[0]);
-    kwic.execute("");
+    kwic.execute(args.length == 1 ? args[0] : "");
   }
 
 //----------------------------------------------------------------------
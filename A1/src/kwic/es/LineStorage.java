@@ -30,6 +30,7 @@ package kwic.es;
  */
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.StringTokenizer;
 
 /**
@@ -50,6 +51,7 @@ import java.util.StringTokenizer;
  * <li>add a new line
  * <li>add an empty line
  * <li>obtain lines count
+ * <li>find a line with particular words
  * </ul>
  * 
  * @author dhelic
@@ -76,6 +78,16 @@ public class LineStorage {
 
 	private ArrayList lines_ = new ArrayList();
 
+	/**
+	 * Index of the lines by their content. The index maps the words of a line
+	 * joined by single spaces to the positions of all lines with these words.
+	 * The index is dropped (null) when lines are inserted or deleted in the
+	 * middle of the storage, since the positions of all following lines change,
+	 * and it is built again by the next lookup.
+	 */
+
+	private HashMap<String, ArrayList<Integer>> index_ = new HashMap<String, ArrayList<Integer>>();
+
 	// ----------------------------------------------------------------------
 	/**
 	 * Constructors
@@ -111,6 +123,9 @@ public class LineStorage {
 
 	public void setChar(char c, int position, int word, int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
@@ -128,6 +143,8 @@ public class LineStorage {
 
 		// replace the old word with the new one
 		current_line.set(word, current_word);
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -170,6 +187,9 @@ public class LineStorage {
 
 	public void addChar(char c, int word, int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
@@ -191,6 +211,8 @@ public class LineStorage {
 
 		// replace the old word with the new one
 		current_line.set(word, current_word);
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -212,6 +234,9 @@ public class LineStorage {
 
 	public void deleteChar(int position, int word, int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
@@ -232,6 +257,8 @@ public class LineStorage {
 
 		// replace the old word with the new one
 		current_line.set(word, current_word);
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -291,11 +318,16 @@ public class LineStorage {
 
 	public void setWord(String chars, int word, int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
 		// replace the old word with the new one
 		current_line.set(word, chars);
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -356,11 +388,16 @@ public class LineStorage {
 
 	public void addWord(String chars, int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
 		// add the new word
 		current_line.add(chars);
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -378,11 +415,16 @@ public class LineStorage {
 
 	public void addEmptyWord(int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
 		// add the new word
 		current_line.add(new String());
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -402,11 +444,16 @@ public class LineStorage {
 
 	public void deleteWord(int word, int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
 		// delete the specified word
 		current_line.remove(word);
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -468,6 +515,9 @@ public class LineStorage {
 
 	public void setLine(String[] words, int line) {
 
+		// the line is indexed by its content
+		unindex(line);
+
 		// get the specified line
 		ArrayList current_line = (ArrayList) lines_.get(line);
 
@@ -477,6 +527,8 @@ public class LineStorage {
 		// add words
 		for (int i = 0; i < words.length; i++)
 			current_line.add(words[i]);
+
+		index(line);
 	}
 
 	// ----------------------------------------------------------------------
@@ -534,6 +586,13 @@ public class LineStorage {
 
 		// insert the new line at the specified index
 		lines_.add(line, current_line);
+
+		// the following lines have moved, their indexed positions are
+		// not valid any more, a new line at the end is simply indexed
+		if (line == lines_.size() - 1)
+			index(line);
+		else
+			index_ = null;
 	}
 
 	// ----------------------------------------------------------------------
@@ -658,6 +717,9 @@ public class LineStorage {
 
 		// add the new line at the end
 		lines_.add(current_line);
+
+		// index the new line
+		index(lines_.size() - 1);
 	}
 
 	// ----------------------------------------------------------------------
@@ -681,6 +743,9 @@ public class LineStorage {
 
 		// add the new line at the end
 		lines_.add(current_line);
+
+		// index the new line
+		index(lines_.size() - 1);
 	}
 
 	// ----------------------------------------------------------------------
@@ -699,6 +764,13 @@ public class LineStorage {
 
 	public void deleteLine(int line) {
 
+		// the following lines move, their indexed positions are not valid
+		// any more, the last line is simply removed from the index
+		if (line == lines_.size() - 1)
+			unindex(line);
+		else
+			index_ = null;
+
 		// delete the specified line
 		lines_.remove(line);
 	}
@@ -714,29 +786,138 @@ public class LineStorage {
 		return lines_.size();
 	}
 
+	// ----------------------------------------------------------------------
+	/**
+	 * Removes the line from the specified position. The last line is moved to
+	 * that position, thus the order of the lines is not kept. In turn, the
+	 * removal takes constant time and the other lines keep their positions in
+	 * the index.
+	 * 
+	 * @param line
+	 *            line index
+	 * @return void
+	 * @see #deleteLine
+	 * @see #findLine
+	 */
+
+	public void removeLine(int line) {
+		int last = lines_.size() - 1;
+
+		// remove the line from the index
+		unindex(line);
+
+		// move the last line to the free position
+		if (line != last) {
+			@SuppressWarnings("unchecked")
+			ArrayList<ArrayList<String>> lines = lines_;
+			unindex(last);
+			lines.set(line, lines.get(last));
+			index(line);
+		}
+		lines_.remove(last);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Finds a line with the same words as the specified line. The words may be
+	 * delimited by any white space characters. The line is looked up in the
+	 * content index, thus it takes constant expected time.
+	 * 
+	 * @param line
+	 *            line to find
+	 * @return int position of a line with these words, -1 if there is no such
+	 *         line
+	 * @see #removeLine
+	 */
+
 	public int findLine(String line) {
-		ArrayList current_line = new ArrayList<String>();
 		String[] words = toWordsArray(line);
-		// add words
-		for (int i = 0; i < words.length; i++) {
-			current_line.add(words[i]);
+		return findLine((words != null) ? words : new String[0]);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Finds a line with the specified words. The line is looked up in the
+	 * content index, thus it takes constant expected time.
+	 * 
+	 * @param words
+	 *            words of the line to find
+	 * @return int position of a line with these words, -1 if there is no such
+	 *         line
+	 * @see #removeLine
+	 */
+
+	public int findLine(String[] words) {
+
+		// build the index if it has been dropped
+		if (index_ == null) {
+			index_ = new HashMap<String, ArrayList<Integer>>();
+			for (int i = 0; i < lines_.size(); i++)
+				index(i);
 		}
-		
-		for (int i = 0; i < lines_.size(); i ++) {
-			for (int j = 0, equals = 0; j < ((ArrayList)lines_.get(i)).size(); j ++, equals ++) {
-				String word = (String)((ArrayList)lines_.get(i)).get(j);
-				if (!current_line.get(j).equals(word)) {
-					break;
-				} else {
-					if (equals == j) {
-						return i;
-					}
-					continue;
-				}
-			}
-			
+
+		ArrayList<Integer> positions = index_.get(getKey(words));
+		return (positions != null) ? positions.get(0) : -1;
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Adds the specified line to the content index.
+	 * 
+	 * @param line
+	 *            line index
+	 * @return void
+	 */
+
+	private void index(int line) {
+		if (index_ == null)
+			return;
+		String key = getKey(getLine(line));
+		ArrayList<Integer> positions = index_.get(key);
+		if (positions == null) {
+			positions = new ArrayList<Integer>(1);
+			index_.put(key, positions);
+		}
+		positions.add(line);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Removes the specified line from the content index.
+	 * 
+	 * @param line
+	 *            line index
+	 * @return void
+	 */
+
+	private void unindex(int line) {
+		if (index_ == null)
+			return;
+		String key = getKey(getLine(line));
+		ArrayList<Integer> positions = index_.get(key);
+		positions.remove(Integer.valueOf(line));
+		if (positions.isEmpty())
+			index_.remove(key);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Gets the key of a line in the content index, i.e., the words of the
+	 * line joined by single spaces.
+	 * 
+	 * @param words
+	 *            words of the line
+	 * @return String
+	 */
+
+	private static String getKey(String[] words) {
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < words.length; i++) {
+			if (i > 0)
+				key.append(' ');
+			key.append(words[i]);
 		}
-		return -1;
+		return key.toString();
 	}
 
 	public static String[] toWordsArray(String line) {
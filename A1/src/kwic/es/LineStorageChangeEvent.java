@@ -73,6 +73,14 @@ public class LineStorageChangeEvent{
 
   private String arg_;
 
+/**
+ * Number of lines involved in the change, e.g. number of lines that were
+ * added at the end of the storage at once
+ *
+ */
+
+  private int count_ = 1;
+
 //----------------------------------------------------------------------
 /**
  * Constructors
@@ -103,6 +111,19 @@ public class LineStorageChangeEvent{
     arg_ = arg;
   }
 
+//----------------------------------------------------------------------
+/**
+ * Creates a new event object with the specified change type and
+ * the specified number of lines involved in the change
+ * @param type change type
+ * @param count number of lines
+ */
+
+  public LineStorageChangeEvent(int type, int count){
+    type_ = type;
+    count_ = count;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Methods
@@ -156,6 +177,30 @@ public class LineStorageChangeEvent{
     return arg_;
   }
 
+//----------------------------------------------------------------------
+/**
+ * Sets the number of lines involved in the change
+ * @param count number of lines
+ * @return void
+ * @see #getCount
+ */
+
+  public void setCount(int count){
+    count_ = count;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of lines involved in the change. An ADD change
+ * always refers to the last lines of the storage.
+ * @return int
+ * @see #setCount
+ */
+
+  public int getCount(){
+    return count_;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Inner classes
@@ -111,6 +111,39 @@ public class LineStorageWrapper extends Observable {
 		notifyObservers(event);
 	}
 
+	// ----------------------------------------------------------------------
+	/**
+	 * Adds a number of new lines to this line storage wrapper. The lines are
+	 * added at the end of the storage. After adding all lines the observers of
+	 * this object are notified only once, with a single event holding the
+	 * number of the new lines.
+	 * 
+	 * @param lines
+	 *            new lines to be added
+	 * @return void
+	 * @see #addLine
+	 */
+
+	public void addLines(String[][] lines) {
+		if (lines.length == 0)
+			return;
+
+		// add the lines
+		for (int i = 0; i < lines.length; i++)
+			lines_.addLine(lines[i]);
+
+		// create a new change event
+		LineStorageChangeEvent event = new LineStorageChangeEvent(
+				LineStorageChangeEvent.ADD, lines.length);
+
+		// set change flag for this object
+		// we need to do this, otherwise observers won't be notified
+		setChanged();
+
+		// send the event
+		notifyObservers(event);
+	}
+
 	// ----------------------------------------------------------------------
 	/**
 	 * Inserts a new line to this line storage wrapper. The line is inserted at
@@ -181,6 +214,36 @@ public class LineStorageWrapper extends Observable {
 		notifyObservers(event);
 	}
 
+	// ----------------------------------------------------------------------
+	/**
+	 * Removes a line from this line storage wrapper. The last line is moved to
+	 * the position of the removed line, thus the order of the lines is not
+	 * kept, but the removal takes constant time. After removing the line all
+	 * observers of this object are notified about the change with the same
+	 * event as for a deleted line.
+	 * 
+	 * @param index
+	 *            position from where to remove the line
+	 * @return void
+	 * @see #deleteLine
+	 * @see #findLine
+	 */
+
+	public void removeLine(int index) {
+		// keep the line so we can create an event object
+		String line = lines_.getLineAsString(index);
+		// remove the line
+		lines_.removeLine(index);
+		// create a new change event
+		LineStorageChangeEvent event = new LineStorageChangeEvent(
+				LineStorageChangeEvent.DELETE, line);
+		// set change flag for this object
+		// we need to do this, otherwise observers won't be notified
+		setChanged();
+		// send the event
+		notifyObservers(event);
+	}
+
 	// ----------------------------------------------------------------------
 	/**
 	 * Gets the line from the specified index. The line is represented as String
@@ -226,9 +289,35 @@ public class LineStorageWrapper extends Observable {
 	}
 	
 
+	// ----------------------------------------------------------------------
+	/**
+	 * Finds a line with the same words as the specified line.
+	 * 
+	 * @param line
+	 *            line to find
+	 * @return int position of a line with these words, -1 if there is no such
+	 *         line
+	 * @see #removeLine
+	 */
+
 	public int findLine(String line) {
 		return lines_.findLine(line);
 	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Finds a line with the specified words.
+	 * 
+	 * @param words
+	 *            words of the line to find
+	 * @return int position of a line with these words, -1 if there is no such
+	 *         line
+	 * @see #removeLine
+	 */
+
+	public int findLine(String[] words) {
+		return lines_.findLine(words);
+	}
 	// ----------------------------------------------------------------------
 	/**
 	 * Inner classes
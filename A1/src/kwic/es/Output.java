@@ -76,6 +76,20 @@ public class Output{
       System.out.println(shift_storage.getLineAsString(i));
   }
   
+//----------------------------------------------------------------------
+/**
+ * Prints the sorted shifts at the standard output.
+ * @param alphabetizer sorted shifts
+ * @return void
+ */
+
+  public void print(Alphabetizer alphabetizer){
+        // iterate through all shifts in the sorted order
+    for(int i = 0; i < alphabetizer.getLineCount(); i++)
+          // print current shift
+      System.out.println(alphabetizer.getLineAsString(i));
+  }
+
   public void print(WordsIndex wordsIndex) {
 	  Map<String, String> map = wordsIndex.getWordsIndex();
 	  System.out.println("Words Index:");
@@ -35,19 +35,21 @@ public class WordsIndex implements Observer {
 		// of the new line and add them to words list
 		case LineStorageChangeEvent.ADD:
 
-			// get the last added line
-			String[] words = lines.getLine(lines.getLineCount() - 1);
-			// iterate through all words of the line
-			// and make words indices
-		
-			for (String word : words) {
-				String count_str = (String)wordsIndex_.get(word);
-				if (count_str != null) {
-					int count = Integer.parseInt(count_str);
-					count ++;
-					wordsIndex_.put(word, String.valueOf(count));
-				} else {
-					wordsIndex_.put(word, "1");
+			// iterate through all lines added by this change
+			for (int i = lines.getLineCount() - event.getCount(); i < lines.getLineCount(); i++) {
+				String[] words = lines.getLine(i);
+				// iterate through all words of the line
+				// and make words indices
+			
+				for (String word : words) {
+					String count_str = (String)wordsIndex_.get(word);
+					if (count_str != null) {
+						int count = Integer.parseInt(count_str);
+						count ++;
+						wordsIndex_.put(word, String.valueOf(count));
+					} else {
+						wordsIndex_.put(word, "1");
+					}
 				}
 			}
 			break;
@@ -37,7 +37,12 @@ import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import kwic.util.OutputSink;
+import kwic.util.Tokenizer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -114,6 +119,36 @@ public class KWIC {
 
 	private int[][] alphabetized_;
 
+	/**
+	 * Partitions smaller than this size are sorted by insertion sort
+	 * 
+	 */
+
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	/**
+	 * Maximal number of bytes of the input file mapped into memory at once
+	 * 
+	 */
+
+	private static final int MAP_WINDOW_SIZE = 1 << 30;
+
+	/**
+	 * Ranges smaller than this size are sorted by one thread in the parallel
+	 * mode
+	 * 
+	 */
+
+	private static final int PARALLEL_SORT_SIZE = 8192;
+
+	/**
+	 * Ranges smaller than this size are merged by one thread in the parallel
+	 * mode
+	 * 
+	 */
+
+	private static final int PARALLEL_MERGE_SIZE = 8192;
+
 	// Added by Rye Yao +++++++++++++++++++++++++++++++++++
 	private char[] shifts_chars_;
 	private int[] shifts_index_;
@@ -121,6 +156,13 @@ public class KWIC {
 
 	// +++++++++++++++++++++++++++++++++++++++++++++
 
+	/**
+	 * Output sink for the printed lines, null for the standard output
+	 * 
+	 */
+
+	private OutputSink out_;
+
 	// ----------------------------------------------------------------------
 	/**
 	 * Constructors
@@ -135,18 +177,34 @@ public class KWIC {
 	 */
 	// ----------------------------------------------------------------------
 
+	// ----------------------------------------------------------------------
+	/**
+	 * setOutput function sets the output sink to which output and newOutPut
+	 * functions print the lines. By default they print to the standard
+	 * output.
+	 * 
+	 * @param out
+	 *            output sink, null for the standard output
+	 * @return void
+	 */
+
+	public void setOutput(OutputSink out) {
+		out_ = out;
+	}
+
 	// ----------------------------------------------------------------------
 	/**
 	 * input function reads the raw data from the specified file and stores it
 	 * in core. If some system I/O error occurs the program exits with an error
-	 * message. The format of raw data is as follows. Lines are separated by the
-	 * line separator character(s) (on Unix '\n', on Windows '\r\n'). Each line
-	 * consists of a number of words. Words are delimited by any number and
-	 * combination of the space chracter (' ') and the horizontal tabulation
-	 * chracter ('\t'). The entered data is parsed in the following way. All
-	 * line separators are removed from the data, all horizontal tabulation word
-	 * delimiters are replaced by a single space character, and all multiple
-	 * word delimiters are replaced by a single space character. Then the parsed
+	 * message. The format of raw data is as follows. The data is encoded in
+	 * UTF-8. Lines are separated by the line separator character(s) (on Unix
+	 * '\n', on Windows '\r\n'). Each line consists of a number of words. Words
+	 * are delimited by any number and combination of white space characters,
+	 * e.g. the space chracter (' ') and the horizontal tabulation chracter
+	 * ('\t'). The entered data is decoded and parsed by a tokenizer (see
+	 * kwic.util.Tokenizer) in the following way. All line separators are
+	 * removed from the data, and all multiple word delimiters are replaced by a
+	 * single space character. Then the parsed
 	 * data is represented in core as two arrays. The first array is a char
 	 * array (char[] chars_), which keeps all words seprated by a single space
 	 * character. Since we removed line separators from the data the second
@@ -172,152 +230,142 @@ public class KWIC {
 		// count of parsed lines
 		int line_count = 0;
 
-		// the last read character
-		int c;
-
-		// new line flag
-		boolean is_new_line = true;
-
-		// new word flag
-		boolean is_new_word = false;
-
-		// line started flag
-		boolean is_line_started = false;
-
 		try {
 
 			// open the file for reading
 			InputStream in = new FileInputStream(file);
+			try {
+
+				// the tokenizer decodes the file and splits it into lines and
+				// words, the words of a line are separated by a single space
+				Tokenizer tokenizer = new Tokenizer(in);
+				while (tokenizer.nextLine()) {
+
+					// skip lines without any words
+					if (tokenizer.getWordCount() == 0)
+						continue;
+
+					// if the line index array is full, we make a new index
+					// array of the double length
+					if (line_count == line_index_.length)
+						line_index_ = Arrays.copyOf(line_index_, line_count * 2);
+
+					// we assign the index in the chars array as the start of
+					// the new line and increment the line counter
+					line_index_[line_count] = char_count;
+					line_count++;
+
+					// if the line does not fit into the chars array, we make
+					// a new chars array of at least the double length
+					int line_start = tokenizer.getLineStart();
+					int line_length = tokenizer.getLineEnd() - line_start;
+					if (char_count + line_length > chars_.length)
+						chars_ = Arrays.copyOf(chars_, Math.max(
+								chars_.length * 2, char_count + line_length));
+
+					// add the characters of the line
+					System.arraycopy(tokenizer.getChars(), line_start, chars_,
+							char_count, line_length);
+					char_count += line_length;
+				}
+			} finally {
+				in.close();
+			}
 
-			// read characters until EOF is reached
-			c = in.read();
-			while (c != -1) {
-
-				// parse the character
-				switch ((byte) c) {
-				case '\n':
-					is_new_line = true;
-					break;
-				case ' ':
-					is_new_word = true;
-					break;
-				case '\t':
-					is_new_word = true;
-					break;
-				case '\r':
-					break;
-				default:
-
-					// if this is a new line we need to update the line index
-					if (is_new_line) {
-
-						// if the line index array is full, we make a new index
-						// array.
-						// the length of the new index array is the length of
-						// the old
-						// index array + 32
-						// at the end we copy the old index array into the new
-						// one and work
-						// further with the new one
-						if (line_count == line_index_.length) {
-							int[] new_index = new int[line_count + 32];
-							System.arraycopy(line_index_, 0, new_index, 0,
-									line_count);
-							line_index_ = new_index;
-						}
-
-						// we assign the index in the original char array as the
-						// start of the new line and increment the line counter
-						line_index_[line_count] = char_count;
-						line_count++;
+			// set the size of the index array to the real number of lines
+			if (line_count != line_index_.length)
+				line_index_ = Arrays.copyOf(line_index_, line_count);
 
-						// we handled the new line, so we set the new line flag
-						// to false
-						is_new_line = false;
+			// set the size of the chars array to the real number of characters
+			if (char_count != chars_.length)
+				chars_ = Arrays.copyOf(chars_, char_count);
 
-						// we set line started flag
-						is_line_started = false;
-					}
+		} catch (FileNotFoundException exc) {
 
-					// if this is a new word we need to insert the word
-					// delimiter before
-					// the new word
-					if (is_new_word) {
-
-						// if the line has been started already add word
-						// delimiter,
-						// otherwise we don't want to add word delimiter in
-						// front of the first
-						// word
-						if (is_line_started) {
-
-							// if the chars array is full, we make a new chars
-							// array.
-							// the length of the new chars array is the length
-							// of the old
-							// index array + 2048
-							// at the end we copy the old index array into the
-							// new one and work
-							// further with the new one
-							if (char_count == chars_.length) {
-								char[] new_chars = new char[char_count + 2048];
-								System.arraycopy(chars_, 0, new_chars, 0,
-										char_count);
-								chars_ = new_chars;
-							}
-
-							// we add the word delimiter in the chars array
-							chars_[char_count] = ' ';
-							char_count++;
-						}
+			// handle the exception if the file could not be found
+			exc.printStackTrace();
+			System.err.println("KWIC Error: Could not open " + file + "file.");
+			System.exit(1);
 
-						// we handled the new word, so we set the new word flag
-						// to false
-						is_new_word = false;
-					}
+		} catch (IOException exc) {
 
-					// now we want to add the chracter to the chars array
+			// handle other system I/O exception
+			exc.printStackTrace();
+			System.err.println("KWIC Error: Could not read " + file + "file.");
+			System.exit(1);
 
-					// if the chars array is full, we make a new chars array.
-					// the length of the new chars array is the length of the
-					// old
-					// index array + 2048
-					// at the end we copy the old index array into the new one
-					// and work
-					// further with the new one
-					if (char_count == chars_.length) {
-						char[] new_chars = new char[char_count + 2048];
-						System.arraycopy(chars_, 0, new_chars, 0, char_count);
-						chars_ = new_chars;
-					}
+		}
+	}
 
-					// add the character
-					chars_[char_count] = (char) c;
-					char_count++;
+	// ----------------------------------------------------------------------
+	/**
+	 * mappedInput function reads the raw data from the specified file in the
+	 * same format and stores it in core in the same way as input function does.
+	 * However, the file is not read through a stream. Instead, it is mapped
+	 * into memory in windows of at most MAP_WINDOW_SIZE bytes, and the mapped
+	 * bytes are decoded by the tokenizer directly. The file is scanned twice.
+	 * The first pass only counts the characters and the lines, so that the
+	 * second pass can store them into chars_ and line_index_ arrays of the
+	 * exact size. Thus, no array is ever grown or copied. If some system I/O
+	 * error occurs the program exits with an error message.
+	 * 
+	 * @param name
+	 *            file name
+	 * @return void
+	 */
 
-					// since we added at least one character we already
-					// started the new line
-					is_line_started = true;
+	public void mappedInput(String file) {
 
-					break;
-				}
+		// count of valid characters in the buffer
+		long char_count = 0;
 
-				// read the next character
-				c = in.read();
-			}
+		// count of parsed lines
+		int line_count = 0;
 
-			// set the size of the index array to the real number of lines
-			if (line_count != line_index_.length) {
-				int[] new_index = new int[line_count];
-				System.arraycopy(line_index_, 0, new_index, 0, line_count);
-				line_index_ = new_index;
-			}
+		try {
 
-			// set the size of the chars array to the real number of characters
-			if (char_count != chars_.length) {
-				char[] new_chars = new char[char_count];
-				System.arraycopy(chars_, 0, new_chars, 0, char_count);
-				chars_ = new_chars;
+			// open the file for reading
+			FileChannel channel = new FileInputStream(file).getChannel();
+			try {
+
+				// the first pass counts, the second pass stores
+				for (int pass = 0; pass < 2; pass++) {
+					boolean store = (pass == 1);
+					if (store) {
+						if (char_count > Integer.MAX_VALUE - 8) {
+							System.err.println("KWIC Error: " + file
+									+ " file is too large.");
+							System.exit(1);
+						}
+						chars_ = new char[(int) char_count];
+						line_index_ = new int[line_count];
+					}
+					char_count = 0;
+					line_count = 0;
+
+					// the tokenizer maps and decodes the file window by
+					// window, the words of a line are separated by a single
+					// space
+					Tokenizer tokenizer = new Tokenizer(channel,
+							MAP_WINDOW_SIZE);
+					while (tokenizer.nextLine()) {
+
+						// skip lines without any words
+						if (tokenizer.getWordCount() == 0)
+							continue;
+						int line_start = tokenizer.getLineStart();
+						int line_length = tokenizer.getLineEnd() - line_start;
+						if (store) {
+							line_index_[line_count] = (int) char_count;
+							System.arraycopy(tokenizer.getChars(), line_start,
+									chars_, (int) char_count, line_length);
+						}
+						line_count++;
+						char_count += line_length;
+					}
+				}
+			} finally {
+				channel.close();
 			}
 
 		} catch (FileNotFoundException exc) {
@@ -498,23 +546,6 @@ public class KWIC {
 			else
 				line_end = line_index_[line_number + 1];
 
-			// current shift array
-			char[] current_shift = new char[line_end - line_start];
-
-			// compose the current shift into array
-			// compose a "real" shift
-			if (line_start != shift_start) {
-				System.arraycopy(chars_, shift_start, current_shift, 0,
-						line_end - shift_start);
-				current_shift[line_end - shift_start] = ' ';
-				System.arraycopy(chars_, line_start, current_shift, line_end
-						- shift_start + 1, shift_start - line_start - 1);
-
-				// compose the original line
-			} else
-				System.arraycopy(chars_, line_start, current_shift, 0, line_end
-						- line_start);
-
 			// binary search to the right place to insert
 			// the i-th line
 			low = 0;
@@ -547,72 +578,21 @@ public class KWIC {
 				else
 					mid_line_end = line_index_[mid_line_number + 1];
 
-				// current mid line array
-				char[] mid_line = new char[mid_line_end - mid_line_start];
-
-				// compose the mid line into array
-				// compose if mid line is a "real" shift
-				if (mid_line_start != mid_shift_start) {
-					System.arraycopy(chars_, mid_shift_start, mid_line, 0,
-							mid_line_end - mid_shift_start);
-					mid_line[mid_line_end - mid_shift_start] = ' ';
-					System.arraycopy(chars_, mid_line_start, mid_line,
-							mid_line_end - mid_shift_start + 1, mid_shift_start
-									- mid_line_start - 1);
-
-					// compose the mid if original line
-				} else
-					System.arraycopy(chars_, mid_line_start, mid_line, 0,
-							mid_line_end - mid_line_start);
-
-				// find the smaller number of characters between mid and current
-				// shift
-				int length = (current_shift.length < mid_line.length) ? current_shift.length
-						: mid_line.length;
-
-				// comparison flag
-				// if two lines are identical: compared = 0
-				// if the first line is greater than the second one: compared =
-				// 1
-				// if the first line is smaller than the second one: compared =
-				// -1
-				int compared = 0;
-
 				// compare the lines alphabetically
 				// comparision is case sensitive, i.e., upper cases are
 				// considered
 				// greater than lower cases
-				for (int j = 0; j < length; j++) {
-					if (current_shift[j] > mid_line[j]) {
-						compared = 1;
-						break;
-					} else if (current_shift[j] < mid_line[j]) {
-						compared = -1;
-						break;
-					}
-				}
-
-				// if compared == 0 check if the lines have the equal length
-				// the line that has greater length is greater than the other
-				// line
-				if (compared == 0) {
-					if (current_shift.length < mid_line.length)
-						compared = -1;
-					else if (current_shift.length > mid_line.length)
-						compared = 1;
-				}
+				int compared = compareShifts(chars_, line_start, line_end,
+						shift_start, mid_line_start, mid_line_end,
+						mid_shift_start);
 
-				switch (compared) {
-				case 1: // i-th line greater
+				if (compared > 0) { // i-th line greater
 					low = mid + 1;
-					break;
-				case -1: // i-th line smaller
+				} else if (compared < 0) { // i-th line smaller
 					high = mid - 1;
-					break;
-				default: // i-th line equal
+				} else { // i-th line equal
 					low = mid;
 					high = mid - 1;
-					break;
 				}
 			}
 
@@ -631,132 +611,508 @@ public class KWIC {
 		}
 	}
 
+	// ----------------------------------------------------------------------
+	/**
+	 * compareShifts function compares two circular shifts alphabetically. A
+	 * shift is given by the start and the end of its original line in a
+	 * character array, and the index where the shift starts. The characters
+	 * of a shift are read from its start up to the line end, then a word
+	 * delimiter follows and the characters from the line start up to the
+	 * word delimiter before the shift start. Thus, shifts are compared
+	 * directly in the character array without composing them, and the
+	 * comparison stops at the first different character. If one shift is a
+	 * prefix of the other, the shorter shift is smaller. Comparison is case
+	 * sensitive. A shift that has been composed already (e.g. in
+	 * shifts_chars_) is compared by passing its start as both the line start
+	 * and the shift start.
+	 * 
+	 * @param chars
+	 *            characters of the lines
+	 * @param start1
+	 *            start of the first line
+	 * @param end1
+	 *            end of the first line
+	 * @param shift1
+	 *            start of the first shift
+	 * @param start2
+	 *            start of the second line
+	 * @param end2
+	 *            end of the second line
+	 * @param shift2
+	 *            start of the second shift
+	 * @return int negative, zero or positive if the first shift is smaller,
+	 *         equal or greater than the second shift
+	 */
+
+	public static int compareShifts(char[] chars, int start1, int end1,
+			int shift1, int start2, int end2, int shift2) {
+
+		int length1 = end1 - start1;
+		int length2 = end2 - start2;
+		int length = (length1 < length2) ? length1 : length2;
+
+		// current positions in both shifts
+		int p1 = shift1;
+		int p2 = shift2;
+		for (int i = 0; i < length; i++) {
+
+			// at the line end we continue with the word delimiter
+			// and then at the line start
+			char c1;
+			if (p1 == end1) {
+				c1 = ' ';
+				p1 = start1;
+			} else
+				c1 = chars[p1++];
+
+			char c2;
+			if (p2 == end2) {
+				c2 = ' ';
+				p2 = start2;
+			} else
+				c2 = chars[p2++];
+
+			if (c1 != c2)
+				return c1 - c2;
+		}
+
+		// the line that has greater length is greater than the other line
+		return length1 - length2;
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * suffixAlphabetizing function sorts the circular shifts like alphabetizing
+	 * function does and stores the result in alphabetized_ as well, but it
+	 * runs in O(n log n) time. It works like suffix array construction by
+	 * prefix doubling. We regard each line as a cyclic text: the line is
+	 * followed by a word delimiter, which joins its last word with its first
+	 * word. Every circular shift of the line is then a rotation of this cyclic
+	 * text without the trailing delimiter. First, all positions of all cyclic
+	 * texts are ranked by their first character, then by their first 2, 4, 8,
+	 * ... characters, until the longest line is covered. The rank of the first
+	 * 2h characters at position q is obtained from the ranks of the first h
+	 * characters at q and at q + h, where q + h wraps around to the start of
+	 * the line (line-local modulo). Ranks of all levels are kept. Finally, only
+	 * the positions where circular shifts start (i.e., word starts) are
+	 * sorted. Two shifts are compared by their common length l: if h is the
+	 * greatest power of 2 not greater than l, the ranks of the first h
+	 * characters at both starts and at both starts + (l - h) decide the
+	 * comparison, otherwise the shorter shift is smaller. Thus, a comparison
+	 * takes constant time and does not copy any characters. circularShift
+	 * function has to be called before this function.
+	 * 
+	 * @return void
+	 */
+
+	public void suffixAlphabetizing() {
+
+		int line_count = line_index_.length;
+		int shift_count = circular_shifts_[0].length;
+
+		// the cyclic texts of all lines are stored one after another, the
+		// character chars_[j] of the i-th line is at the position j + i of the
+		// text, the position after the line keeps the joining word delimiter
+		int text_length = chars_.length + line_count;
+
+		// start position of each line in the text and its length including
+		// the joining delimiter (the period of its cyclic text)
+		int[] text_start = new int[line_count];
+		int[] period = new int[line_count];
+
+		// the line of each position in the text
+		int[] owner = new int[text_length];
+
+		// ranks of the first character at each position
+		int[] rank = new int[text_length];
+
+		// the longest line
+		int max_length = 0;
+
+		for (int i = 0; i < line_count; i++) {
+			int line_start = line_index_[i];
+			int line_end = (i == (line_count - 1)) ? chars_.length
+					: line_index_[i + 1];
+			text_start[i] = line_start + i;
+			period[i] = line_end - line_start + 1;
+			if (line_end - line_start > max_length)
+				max_length = line_end - line_start;
+			for (int j = line_start; j < line_end; j++) {
+				owner[j + i] = i;
+				rank[j + i] = chars_[j];
+			}
+			owner[line_end + i] = i;
+			rank[line_end + i] = ' ';
+		}
+
+		// number of levels: the level k keeps ranks of the first 2^k
+		// characters, we need all levels up to the longest line
+		int levels = 1;
+		while ((1 << levels) <= max_length)
+			levels++;
+		int[][] ranks = new int[levels][];
+		ranks[0] = rank;
+
+		// the ranks of the first level are character codes
+		int rank_count = 65536;
+
+		// work arrays for radix sort
+		int[] order = new int[text_length];
+		int[] sorted = new int[text_length];
+		int[] second = new int[text_length];
+		int[] count = new int[Math.max(rank_count, text_length) + 1];
+
+		for (int k = 1; k < levels; k++) {
+			int h = 1 << (k - 1);
+			int[] previous = ranks[k - 1];
+
+			// rank of the second half of each position
+			for (int q = 0; q < text_length; q++) {
+				int line = owner[q];
+				second[q] = previous[text_start[line]
+						+ (q - text_start[line] + h) % period[line]];
+			}
+
+			// sort positions by the second half
+			Arrays.fill(count, 0, rank_count + 1, 0);
+			for (int q = 0; q < text_length; q++)
+				count[second[q] + 1]++;
+			for (int r = 1; r <= rank_count; r++)
+				count[r] += count[r - 1];
+			for (int q = 0; q < text_length; q++)
+				order[count[second[q]]++] = q;
+
+			// stable sort by the first half
+			Arrays.fill(count, 0, rank_count + 1, 0);
+			for (int q = 0; q < text_length; q++)
+				count[previous[q] + 1]++;
+			for (int r = 1; r <= rank_count; r++)
+				count[r] += count[r - 1];
+			for (int i = 0; i < text_length; i++)
+				sorted[count[previous[order[i]]]++] = order[i];
+
+			// assign new ranks, equal pairs get equal ranks
+			int[] next = new int[text_length];
+			int r = 0;
+			for (int i = 0; i < text_length; i++) {
+				int q = sorted[i];
+				if (i > 0) {
+					int p = sorted[i - 1];
+					if (previous[p] != previous[q] || second[p] != second[q])
+						r++;
+				}
+				next[q] = r;
+			}
+			ranks[k] = next;
+			rank_count = r + 1;
+		}
+
+		// text positions and lengths of the circular shifts
+		int[] shift_position = new int[shift_count];
+		int[] shift_length = new int[shift_count];
+		for (int i = 0; i < shift_count; i++) {
+			int line = circular_shifts_[0][i];
+			shift_position[i] = circular_shifts_[1][i] + line;
+			shift_length[i] = period[line] - 1;
+		}
+
+		// sort the shifts by bottom-up merge sort
+		int[] shifts = new int[shift_count];
+		int[] merged = new int[shift_count];
+		for (int i = 0; i < shift_count; i++)
+			shifts[i] = i;
+		for (int width = 1; width < shift_count; width *= 2) {
+			for (int low = 0; low < shift_count; low += 2 * width) {
+				int mid = Math.min(low + width, shift_count);
+				int high = Math.min(low + 2 * width, shift_count);
+				int i = low;
+				int j = mid;
+				int m = low;
+				while (i < mid && j < high) {
+
+					// compare the i-th and j-th shift
+					int a = shifts[i];
+					int b = shifts[j];
+					int length = Math.min(shift_length[a], shift_length[b]);
+					int level = 31 - Integer.numberOfLeadingZeros(length);
+					int[] level_rank = ranks[level];
+					int pa = shift_position[a];
+					int pb = shift_position[b];
+					int compared = level_rank[pa] - level_rank[pb];
+					if (compared == 0) {
+						int offset = length - (1 << level);
+						int line_a = circular_shifts_[0][a];
+						int line_b = circular_shifts_[0][b];
+						compared = level_rank[text_start[line_a]
+								+ (pa - text_start[line_a] + offset)
+								% period[line_a]]
+								- level_rank[text_start[line_b]
+										+ (pb - text_start[line_b] + offset)
+										% period[line_b]];
+					}
+					if (compared == 0)
+						compared = shift_length[a] - shift_length[b];
+
+					merged[m++] = (compared <= 0) ? shifts[i++] : shifts[j++];
+				}
+				while (i < mid)
+					merged[m++] = shifts[i++];
+				while (j < high)
+					merged[m++] = shifts[j++];
+			}
+			int[] tmp = shifts;
+			shifts = merged;
+			merged = tmp;
+		}
+
+		// store the sorted shifts
+		alphabetized_ = new int[2][shift_count];
+		for (int i = 0; i < shift_count; i++) {
+			alphabetized_[0][i] = circular_shifts_[0][shifts[i]];
+			alphabetized_[1][i] = circular_shifts_[1][shifts[i]];
+		}
+	}
+
 	// ----------------------------------------------------------------------
 	/**
 	 * output function is responsible for printing the alphabetized lines in a
-	 * nice format. Thus, each line is printed on the standard output in a
-	 * single line.
+	 * nice format. Thus, each line is printed on the standard output (or to
+	 * the output sink set by setOutput function) in a single line. The
+	 * characters are written in blocks to a buffered output sink, which is
+	 * flushed at the end.
 	 * 
 	 * @return void
 	 */
 
 	public void output() {
-		for (int i = 0; i < alphabetized_[0].length; i++) {
-			int line_number = alphabetized_[0][i];
-			int shift_start = alphabetized_[1][i];
-			int line_start = line_index_[line_number];
-			int line_end = 0;
-			if (line_number == (line_index_.length - 1))
-				line_end = chars_.length;
-			else
-				line_end = line_index_[line_number + 1];
-			if (line_start != shift_start) {
-				for (int j = shift_start; j < line_end; j++)
-					System.out.print(chars_[j]);
-				System.out.print(' ');
-				for (int j = line_start; j < (shift_start - 1); j++)
-					System.out.print(chars_[j]);
-			} else
-				for (int j = line_start; j < line_end; j++)
-					System.out.print(chars_[j]);
-			System.out.print('\n');
+		OutputSink out = (out_ != null) ? out_ : new OutputSink();
+		try {
+			for (int i = 0; i < alphabetized_[0].length; i++) {
+				int line_number = alphabetized_[0][i];
+				int shift_start = alphabetized_[1][i];
+				int line_start = line_index_[line_number];
+				int line_end = 0;
+				if (line_number == (line_index_.length - 1))
+					line_end = chars_.length;
+				else
+					line_end = line_index_[line_number + 1];
+				if (line_start != shift_start) {
+					out.write(chars_, shift_start, line_end - shift_start);
+					out.write(' ');
+					out.write(chars_, line_start, shift_start - 1 - line_start);
+				} else
+					out.write(chars_, line_start, line_end - line_start);
+				out.write('\n');
+			}
+			out.flush();
+		} catch (IOException exc) {
+
+			// handle the system I/O exception
+			exc.printStackTrace();
+			System.err.println("KWIC Error: Could not write the output.");
+			System.exit(1);
 		}
 	}
 
 	// ----------------------------------------------------------------------
 	/**
-	 * main function controls all other functions in the system. It implements
-	 * the sequence of calls to other functions to obtain the desired
-	 * functionality of the system. Before any other function is called, main
-	 * function checks the command line arguments. The program expects exactly
-	 * one command line argument specifying the name of the file that contains
-	 * the data. If the program have not been started with proper command line
-	 * arguments, main function exits with an error message. Otherwise, input
-	 * function is called first to read the data from the file. When input
-	 * function has finished circularShift and alphabetizing functions are
-	 * called in that order. circularShift function makes all circular shifts of
-	 * all lines that were entered. alphabetizing function sorts all circular
-	 * shifts alphabetically. Finally, output function prints the results in a
-	 * nice format.
+	 * newCircularShift function processes the two arrays prepared by input
+	 * function. Unlike circularShift function it does not keep the shifts as
+	 * indices into the chars_ array, but writes the text of every circular
+	 * shift into the shifts_chars_ array. The start of each shift in this
+	 * array is kept in shifts_index_ array, and its length in
+	 * shifts_lines_len_ array. A line with n words has n shifts, each as long
+	 * as the line itself. Therefore, we first compute the exact size of all
+	 * three arrays, and then copy each shift as two blocks of characters: the
+	 * words from the shift word to the end of the line, a space, and the words
+	 * from the begin of the line to the shift word. Words are found by their
+	 * positions, so repeated words in a line give distinct shifts. Thus, the
+	 * function runs in time linear in the size of its output.
 	 * 
-	 * @param args
-	 *            command line argumnets
 	 * @return void
 	 */
 
 	public void newCircularShift() {
 
-		ArrayList<String> lines = new ArrayList<String>();
+		// count the shifts and their characters
+		int shift_count = 0;
+		long char_count = 0;
 		for (int i = 0; i < line_index_.length; i++) {
-
-			if (i == line_index_.length - 1) {
-//				System.out.println("Line_index_length is : "
-//						+ line_index_.length);
-//				System.out.println("chars_.length is : " + chars_.length);
-//				System.out.println("line_index_[i] is : " + line_index_[i]);
-				lines.add(String.copyValueOf(chars_, line_index_[i],
-						chars_.length - line_index_[i]));
-			} else {
-				lines.add(String.copyValueOf(chars_, line_index_[i],
-						line_index_[i + 1] - line_index_[i]));
-			}
+			int word_count = countWords(i);
+			shift_count += word_count;
+			char_count += (long) word_count * (lineEnd(i) - line_index_[i]);
+		}
+		if (char_count > Integer.MAX_VALUE - 8) {
+			System.err.println("KWIC Error: Too many circular shifts.");
+			System.exit(1);
 		}
 
-		String shift_chars_str = "";
-		int shifts_words_count = 0;
-		int shifts_lines_count = 0;
-		for (String line : lines) {
-			String[] wordsOfLine = line.split(" ");
+		shifts_chars_ = new char[(int) char_count];
+		shifts_index_ = new int[shift_count];
+		shifts_lines_len_ = new int[shift_count];
 
-			for (String word : wordsOfLine) {
-				shifts_words_count++;
-				shifts_lines_count++;
+		// write the shifts
+		this.writeShifts(0, line_index_.length, 0, 0);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Gets the index in the chars_ array where the specified line ends
+	 * (exclusive).
+	 * 
+	 * @param line
+	 *            index of the line in the line index array
+	 * @return int
+	 */
+
+	private int lineEnd(int line) {
+		return (line == (line_index_.length - 1)) ? chars_.length
+				: line_index_[line + 1];
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Counts the words of the specified line.
+	 * 
+	 * @param line
+	 *            index of the line in the line index array
+	 * @return int
+	 */
+
+	private int countWords(int line) {
+		int line_end = lineEnd(line);
+		int word_count = 1;
+		for (int j = line_index_[line]; j < line_end; j++)
+			if (chars_[j] == ' ')
+				word_count++;
+		return word_count;
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Writes all circular shifts of the specified lines into shifts_chars_,
+	 * shifts_index_ and shifts_lines_len_ arrays, which must be large enough.
+	 * 
+	 * @param first_line
+	 *            index of the first line in the line index array
+	 * @param end_line
+	 *            index of the line after the last line
+	 * @param shift
+	 *            index of the first shift in shifts_index_
+	 * @param position
+	 *            index in shifts_chars_ where the first shift starts
+	 * @return void
+	 */
+
+	private void writeShifts(int first_line, int end_line, int shift,
+			int position) {
+		for (int i = first_line; i < end_line; i++) {
+			int line_start = line_index_[i];
+			int line_end = lineEnd(i);
+			int line_length = line_end - line_start;
+			for (int j = line_start; j < line_end; j++) {
+
+				// every word starts a shift
+				if (j == line_start || chars_[j - 1] == ' ') {
+					shifts_index_[shift] = position;
+					shifts_lines_len_[shift] = line_length;
+					shift++;
+
+					// from the shift word to the end of the line
+					System.arraycopy(chars_, j, shifts_chars_, position,
+							line_end - j);
+					position += line_end - j;
+
+					// from the begin of the line to the shift word
+					if (j > line_start) {
+						shifts_chars_[position++] = ' ';
+						System.arraycopy(chars_, line_start, shifts_chars_,
+								position, j - 1 - line_start);
+						position += j - 1 - line_start;
+					}
+				}
 			}
 		}
-		
-		shifts_index_ = new int[shifts_words_count];
-		shifts_lines_len_ = new int[shifts_lines_count];
-		shifts_words_count = 0;
-		shifts_lines_count = 0;
-		
-		for (String line : lines) {
-			String[] wordsOfLine = line.split(" ");
-			for (String word : wordsOfLine) {
-				String shift_line = "";
-
-				if (line.indexOf(word) == 0) {
-					// The original line
-					shift_line += line;
-				} else {
-					shift_line += line.substring(line.indexOf(word));
-					shift_line += " "
-							+ line.substring(0, line.indexOf(word) - 1);
-				}
+	}
 
-//				System.out.println("shift_line is : " + shift_line);
-				if (shift_chars_str.length() == 0) {
-					// The first line
-					shifts_index_[shifts_words_count++] = 0;
-				} else {
-					shifts_index_[shifts_words_count++] = shift_chars_str
-							.length();
-				}
+	// ----------------------------------------------------------------------
+	/**
+	 * parallelCircularShift function produces the same shifts as
+	 * newCircularShift function, but uses the specified number of threads.
+	 * The lines are partitioned into a few ranges per thread. First, a
+	 * fork/join task per range counts the shifts and characters of its
+	 * lines. From these counts we compute where the shifts of each range
+	 * start in the presized arrays. Then, a task per range writes its shifts
+	 * into its own region of the arrays. Thus, the threads never write to
+	 * the same region and need no synchronization.
+	 * 
+	 * @param threads
+	 *            number of threads
+	 * @return void
+	 */
 
-				shift_chars_str += shift_line;
-				shifts_lines_len_[shifts_lines_count++] = shift_line
-						.length();
+	public void parallelCircularShift(int threads) {
+		int line_count = line_index_.length;
+
+		// ranges of lines, range r holds lines from range_lines[r] to
+		// range_lines[r + 1]
+		int range_count = Math.max(1, Math.min(line_count, threads * 4));
+		int[] range_lines = new int[range_count + 1];
+		for (int r = 0; r <= range_count; r++)
+			range_lines[r] = (int) ((long) line_count * r / range_count);
+
+		// shift and character counts of range r are stored at r + 1, and
+		// then summed up to the start of range r at r
+		int[] range_shifts = new int[range_count + 1];
+		long[] range_chars = new long[range_count + 1];
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new ShiftTask(range_lines, range_shifts, range_chars,
+					0, range_count, true));
+			for (int r = 0; r < range_count; r++) {
+				range_shifts[r + 1] += range_shifts[r];
+				range_chars[r + 1] += range_chars[r];
+			}
+			if (range_chars[range_count] > Integer.MAX_VALUE - 8) {
+				System.err.println("KWIC Error: Too many circular shifts.");
+				System.exit(1);
 			}
-		}
-		shifts_chars_ = new char[shift_chars_str.length()];
-		System.arraycopy(shift_chars_str.toCharArray(), 0, shifts_chars_, 0,
-				shift_chars_str.length());
 
+			shifts_chars_ = new char[(int) range_chars[range_count]];
+			shifts_index_ = new int[range_shifts[range_count]];
+			shifts_lines_len_ = new int[range_shifts[range_count]];
+
+			pool.invoke(new ShiftTask(range_lines, range_shifts, range_chars,
+					0, range_count, false));
+		} finally {
+			pool.shutdown();
+		}
 	}
 
+	// ----------------------------------------------------------------------
+	/**
+	 * newAlphabetizing function sorts the shifts composed by newCircularShift
+	 * function alphabetically. It reorders shifts_index_ and shifts_lines_len_
+	 * together. Shifts are compared by their full text. We use introsort:
+	 * quicksort with the median of three elements as the pivot and three-way
+	 * partitioning, so that many equal shifts do not slow it down. Small
+	 * partitions are sorted by insertion sort, and if quicksort recurses too
+	 * deep (e.g. for unlucky pivots) the partition is sorted by heap sort.
+	 * Thus, the sort takes O(n log n) comparisons in the worst case, also for
+	 * sorted or highly repetitive input.
+	 * 
+	 * @return void
+	 */
+
 	public void newAlphabetizing() {
-		this.quickSort(shifts_index_, 0, shifts_index_.length - 1);
+		int count = shifts_index_.length;
+
+		// allowed recursion depth: 2 * log2(count)
+		int depth = 2 * (32 - Integer.numberOfLeadingZeros(count));
+		this.introSort(0, count - 1, depth);
 	}
-	
+
 	private void swap(int[] array, int a, int b) {
 //		array[a] ^= array[b];
 //		array[b] ^= array[a];
@@ -766,89 +1122,422 @@ public class KWIC {
 		array[b] = tmp;
 	}
 
-	private void quickSort(int[] array, int first, int last) {
-		int i = first, j = 0;
-		if (first < last) {
-			j = this.partition(array, first, last);
-			swap(array, i, j);
-			swap(shifts_lines_len_, i, j);
-			this.quickSort(array, i, j - 1);
-			this.quickSort(array, j + 1, last);
+	// ----------------------------------------------------------------------
+	/**
+	 * Swaps two shifts in shifts_index_ and shifts_lines_len_.
+	 * 
+	 * @param a
+	 *            index of the first shift
+	 * @param b
+	 *            index of the second shift
+	 * @return void
+	 */
+
+	private void swapShifts(int a, int b) {
+		swap(shifts_index_, a, b);
+		swap(shifts_lines_len_, a, b);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Compares the a-th shift in shifts_index_ with a shift given by its start
+	 * in shifts_chars_ and its length.
+	 * 
+	 * @param a
+	 *            index of the shift
+	 * @param start
+	 *            start of the other shift
+	 * @param length
+	 *            length of the other shift
+	 * @return int
+	 */
+
+	private int compareShift(int a, int start, int length) {
+		int a_start = shifts_index_[a];
+		return compareShifts(shifts_chars_, a_start, a_start
+				+ shifts_lines_len_[a], a_start, start, start + length, start);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Sorts the shifts from first to last (inclusive) by introsort.
+	 * 
+	 * @param first
+	 *            index of the first shift
+	 * @param last
+	 *            index of the last shift
+	 * @param depth
+	 *            allowed recursion depth
+	 * @return void
+	 */
+
+	private void introSort(int first, int last, int depth) {
+		while (last - first >= INSERTION_SORT_SIZE) {
+
+			// too deep, avoid the quadratic worst case
+			if (depth == 0) {
+				this.heapSort(first, last);
+				return;
+			}
+			depth--;
+
+			// choose the median of the first, the middle and the last
+			// shift as the pivot and move it to the first position
+			int mid = (first + last) >>> 1;
+			if (compareShift(mid, shifts_index_[first], shifts_lines_len_[first]) < 0)
+				swapShifts(mid, first);
+			if (compareShift(last, shifts_index_[first], shifts_lines_len_[first]) < 0)
+				swapShifts(last, first);
+			if (compareShift(last, shifts_index_[mid], shifts_lines_len_[mid]) < 0)
+				swapShifts(last, mid);
+			swapShifts(first, mid);
+			int pivot_start = shifts_index_[first];
+			int pivot_length = shifts_lines_len_[first];
+
+			// three-way partitioning: shifts less than the pivot are moved
+			// before lt, shifts greater than the pivot after gt, and shifts
+			// equal to the pivot stay between them
+			int lt = first;
+			int gt = last;
+			int i = first + 1;
+			while (i <= gt) {
+				int compared = compareShift(i, pivot_start, pivot_length);
+				if (compared < 0)
+					swapShifts(lt++, i++);
+				else if (compared > 0)
+					swapShifts(i, gt--);
+				else
+					i++;
+			}
+
+			// recurse into the smaller part, loop on the larger part
+			if (lt - first < last - gt) {
+				this.introSort(first, lt - 1, depth);
+				first = gt + 1;
+			} else {
+				this.introSort(gt + 1, last, depth);
+				last = lt - 1;
+			}
 		}
+		this.insertionSort(first, last);
 	}
 
-	private int partition(int[] array, int first, int last) {
-
-		int pivot = array[first];
-		int i = first + 1;
-		int j = last;
-		while (true) {
-			while (shifts_chars_[array[j--]] > shifts_chars_[pivot]);
-			j++;
-			while (shifts_chars_[array[i++]] < shifts_chars_[pivot]);
-			i--;
-			// swap the two elements
-			if (i < j) {
-				swap(array, i, j);
-				swap(shifts_lines_len_, i, j);
-				i++;
+	// ----------------------------------------------------------------------
+	/**
+	 * Sorts the shifts from first to last (inclusive) by insertion sort.
+	 * 
+	 * @param first
+	 *            index of the first shift
+	 * @param last
+	 *            index of the last shift
+	 * @return void
+	 */
+
+	private void insertionSort(int first, int last) {
+		for (int i = first + 1; i <= last; i++) {
+			int start = shifts_index_[i];
+			int length = shifts_lines_len_[i];
+			int j = i - 1;
+			while (j >= first && compareShift(j, start, length) > 0) {
+				shifts_index_[j + 1] = shifts_index_[j];
+				shifts_lines_len_[j + 1] = shifts_lines_len_[j];
 				j--;
-			} else {
-				return j;
 			}
+			shifts_index_[j + 1] = start;
+			shifts_lines_len_[j + 1] = length;
 		}
 	}
- 
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Sorts the shifts from first to last (inclusive) by heap sort.
+	 * 
+	 * @param first
+	 *            index of the first shift
+	 * @param last
+	 *            index of the last shift
+	 * @return void
+	 */
+
+	private void heapSort(int first, int last) {
+		int size = last - first + 1;
+
+		// create heap
+		for (int i = (size / 2 - 1); i >= 0; i--)
+			this.siftDown(first, i, size);
+
+		// remove the root and recreate the heap
+		for (int i = (size - 1); i >= 1; i--) {
+			swapShifts(first, first + i);
+			this.siftDown(first, 0, i);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Reconstructs the heap for the heap sort of shifts. Heap indices are
+	 * relative to the first shift of the sorted range.
+	 * 
+	 * @param first
+	 *            index of the first shift
+	 * @param root
+	 *            heap index of the root
+	 * @param bottom
+	 *            heap size
+	 * @return void
+	 */
+
+	private void siftDown(int first, int root, int bottom) {
+		int max_child = root * 2 + 1;
+		while (max_child < bottom) {
+			if ((max_child + 1) < bottom
+					&& compareShift(first + max_child + 1,
+							shifts_index_[first + max_child],
+							shifts_lines_len_[first + max_child]) > 0)
+				max_child++;
+			if (compareShift(first + root, shifts_index_[first + max_child],
+					shifts_lines_len_[first + max_child]) < 0) {
+				swapShifts(first + root, first + max_child);
+				root = max_child;
+				max_child = root * 2 + 1;
+			} else
+				break;
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * parallelAlphabetizing function sorts the shifts like newAlphabetizing
+	 * function, but uses the specified number of threads. It is a fork/join
+	 * merge sort. Both halves of a range are sorted in parallel, and then
+	 * merged in parallel: the larger half is split at its middle shift, the
+	 * other half at the position of that shift found by binary search, and
+	 * both pairs of parts are merged independently. Ranges of at most
+	 * PARALLEL_SORT_SIZE shifts are sorted by introsort. The sorted halves
+	 * and the merged ranges alternate between the shift arrays and
+	 * temporary arrays, so that no range has to be copied back.
+	 * 
+	 * @param threads
+	 *            number of threads
+	 * @return void
+	 */
+
+	public void parallelAlphabetizing(int threads) {
+		int count = shifts_index_.length;
+		int[] tmp_index = new int[count];
+		int[] tmp_len = new int[count];
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new SortTask(tmp_index, tmp_len, 0, count, false));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * Compares two shifts given by their start in shifts_chars_ and their
+	 * length.
+	 * 
+	 * @param start1
+	 *            start of the first shift
+	 * @param length1
+	 *            length of the first shift
+	 * @param start2
+	 *            start of the second shift
+	 * @param length2
+	 *            length of the second shift
+	 * @return int
+	 */
+
+	private int compareShifts(int start1, int length1, int start2, int length2) {
+		return compareShifts(shifts_chars_, start1, start1 + length1, start1,
+				start2, start2 + length2, start2);
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * filter function removes all shifts composed by newCircularShift function
+	 * which start with a digit. The remaining shifts are moved to the front of
+	 * shifts_index_ and shifts_lines_len_ arrays in one pass, keeping the two
+	 * arrays aligned, and the arrays are trimmed at the end.
+	 * 
+	 * @return void
+	 */
+
 	public void filter() {
-		String new_shifts_str = "";
-		for (int curr_index = 0; curr_index < shifts_index_.length; curr_index++) {
-			int shift_index = shifts_index_[curr_index];
-			
-			if (shifts_chars_[shift_index] < '0'
-					|| shifts_chars_[shift_index] > '9') {
-				if (curr_index == shifts_index_.length - 1) {
-					new_shifts_str.concat(new String(shifts_chars_,
-							shift_index, shifts_chars_.length - shift_index));
-				} else {
-					int shift_index_next = shifts_index_[curr_index + 1];
-					String tmp = new String(shifts_chars_, shift_index,
-							shift_index_next - shift_index);
+		int count = 0;
+		for (int i = 0; i < shifts_index_.length; i++) {
+			char first = shifts_chars_[shifts_index_[i]];
+			if (first < '0' || first > '9') {
+				shifts_index_[count] = shifts_index_[i];
+				shifts_lines_len_[count] = shifts_lines_len_[i];
+				count++;
+			}
+		}
+		if (count != shifts_index_.length) {
+			shifts_index_ = Arrays.copyOf(shifts_index_, count);
+			shifts_lines_len_ = Arrays.copyOf(shifts_lines_len_, count);
+		}
+	}
 
-					new_shifts_str.concat(tmp);
-				}
-			} else {
-				
-				int[] new_shifts_index_ = new int[shifts_index_.length - 1];
-				if (curr_index == shifts_index_.length - 1) {
-					System.arraycopy(shifts_index_, 0, new_shifts_index_, 0,
-							shifts_index_.length - 1);
-				} else {
-					System.arraycopy(shifts_index_, 0, new_shifts_index_, 0,
-							curr_index);
-					System.arraycopy(shifts_index_, curr_index + 1,
-							new_shifts_index_, curr_index, shifts_index_.length
-									- curr_index - 1);
-					shifts_index_ = new_shifts_index_;
-				}
-				
+	// ----------------------------------------------------------------------
+	/**
+	 * circularShiftFilter function removes all shifts composed by
+	 * circularShift function which start with a digit, like filter function
+	 * does for the shifts of newCircularShift function. The remaining pairs
+	 * are moved to the front of the circular_shifts_ matrix in one pass, and
+	 * its rows are trimmed at the end.
+	 * 
+	 * @return void
+	 */
+
+	public void circularShiftFilter() {
+		int count = 0;
+		for (int i = 0; i < circular_shifts_[0].length; i++) {
+			char first = chars_[circular_shifts_[1][i]];
+			if (first < '0' || first > '9') {
+				circular_shifts_[0][count] = circular_shifts_[0][i];
+				circular_shifts_[1][count] = circular_shifts_[1][i];
+				count++;
 			}
 		}
+		if (count != circular_shifts_[0].length) {
+			circular_shifts_[0] = Arrays.copyOf(circular_shifts_[0], count);
+			circular_shifts_[1] = Arrays.copyOf(circular_shifts_[1], count);
+		}
 	}
 
+	// ----------------------------------------------------------------------
+	/**
+	 * newOutPut function prints the shifts sorted by newAlphabetizing
+	 * function, each shift in a single line, like output function does.
+	 * 
+	 * @return void
+	 */
+
 	public void newOutPut() {
-		for (int i = 0; i < shifts_index_.length; i++) {
-			System.out.println(String.valueOf(shifts_chars_, shifts_index_[i],
-					shifts_lines_len_[i]));
+		OutputSink out = (out_ != null) ? out_ : new OutputSink();
+		try {
+			for (int i = 0; i < shifts_index_.length; i++) {
+				out.write(shifts_chars_, shifts_index_[i], shifts_lines_len_[i]);
+				out.write('\n');
+			}
+			out.flush();
+		} catch (IOException exc) {
+
+			// handle the system I/O exception
+			exc.printStackTrace();
+			System.err.println("KWIC Error: Could not write the output.");
+			System.exit(1);
 		}
 	}
 
+	// ----------------------------------------------------------------------
+	/**
+	 * main function controls all other functions in the system. It implements
+	 * the sequence of calls to other functions to obtain the desired
+	 * functionality of the system. Before any other function is called, main
+	 * function checks the command line arguments. The program expects exactly
+	 * one command line argument specifying the name of the file that contains
+	 * the data. If the program have not been started with proper command line
+	 * arguments, main function exits with an error message. Otherwise, input
+	 * function is called first to read the data from the file. When input
+	 * function has finished circularShift and alphabetizing functions are
+	 * called in that order. circularShift function makes all circular shifts of
+	 * all lines that were entered. alphabetizing function sorts all circular
+	 * shifts alphabetically. Finally, output function prints the results in a
+	 * nice format.
+	 * 
+	 * @param args
+	 *            command line argumnets
+	 * @return void
+	 */
+
 	public static void main(String[] args) {
 		KWIC kwic = new KWIC();
-		if (args.length != 1) {
-			System.err.println("KWIC Usage: java kwic.ms.KWIC file_name");
+		OutputSink out = null;
+		if (args.length > 2 && args[0].equals("-output")) {
+
+			// print to the specified file
+			try {
+				out = new OutputSink(args[1], StandardCharsets.UTF_8,
+						OutputSink.BUFFER_SIZE);
+			} catch (IOException exc) {
+				exc.printStackTrace();
+				System.err.println("KWIC Error: Could not open " + args[1]
+						+ "file.");
+				System.exit(1);
+			}
+			kwic.setOutput(out);
+			args = Arrays.copyOfRange(args, 2, args.length);
+		}
+		kwic.run(args);
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException exc) {
+				exc.printStackTrace();
+				System.err.println("KWIC Error: Could not write the output.");
+				System.exit(1);
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * run function checks the command line arguments without the -output
+	 * option and calls the other functions.
+	 * 
+	 * @param args
+	 *            command line argumnets
+	 * @return void
+	 */
+
+	private void run(String[] args) {
+		KWIC kwic = this;
+		if (args.length == 2 && args[0].equals("-suffix")) {
+
+			// sort the shared data shifts by suffix array construction
+			kwic.input(args[1]);
+			kwic.circularShift();
+			kwic.circularShiftFilter();
+			kwic.suffixAlphabetizing();
+			kwic.output();
+			return;
+		}
+		if (args.length == 3 && args[0].equals("-parallel")) {
+
+			// shift and sort with the specified number of threads
+			int threads = 0;
+			try {
+				threads = Integer.parseInt(args[1]);
+			} catch (NumberFormatException exc) {
+			}
+			if (threads < 1) {
+				System.err.println("KWIC Error: Invalid number of threads "
+						+ args[1] + ".");
+				System.exit(1);
+			}
+			kwic.input(args[2]);
+			kwic.parallelCircularShift(threads);
+			kwic.filter();
+			kwic.parallelAlphabetizing(threads);
+			kwic.newOutPut();
+			return;
+		}
+		if (args.length == 2 && args[0].equals("-mmap")) {
+
+			// read the input file through memory mapping
+			kwic.mappedInput(args[1]);
+		} else if (args.length == 1) {
+			kwic.input(args[0]);
+		} else {
+			System.err
+					.println("KWIC Usage: java kwic.ms.KWIC [-output output_file_name] [-suffix | -mmap | -parallel threads] file_name");
 			System.exit(1);
 		}
-		kwic.input(args[0]);
 		// kwic.circularShift();
 		kwic.newCircularShift();
 		kwic.filter();
@@ -865,4 +1554,333 @@ public class KWIC {
 	 */
 	// ----------------------------------------------------------------------
 
+	// ----------------------------------------------------------------------
+	/**
+	 * A ShiftTask counts or writes the circular shifts of a number of line
+	 * ranges. If it has more than one range it splits them into two tasks.
+	 * 
+	 */
+
+	private class ShiftTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * First line of each range
+		 * 
+		 */
+
+		private int[] range_lines_;
+
+		/**
+		 * First shift of each range
+		 * 
+		 */
+
+		private int[] range_shifts_;
+
+		/**
+		 * Start of the first shift of each range in shifts_chars_
+		 * 
+		 */
+
+		private long[] range_chars_;
+
+		/**
+		 * First range of this task
+		 * 
+		 */
+
+		private int first_;
+
+		/**
+		 * Range after the last range of this task
+		 * 
+		 */
+
+		private int end_;
+
+		/**
+		 * Count the shifts if true, write them otherwise
+		 * 
+		 */
+
+		private boolean count_;
+
+		public ShiftTask(int[] range_lines, int[] range_shifts,
+				long[] range_chars, int first, int end, boolean count) {
+			range_lines_ = range_lines;
+			range_shifts_ = range_shifts;
+			range_chars_ = range_chars;
+			first_ = first;
+			end_ = end;
+			count_ = count;
+		}
+
+		protected void compute() {
+			if (end_ - first_ > 1) {
+				int mid = (first_ + end_) >>> 1;
+				invokeAll(new ShiftTask(range_lines_, range_shifts_,
+						range_chars_, first_, mid, count_), new ShiftTask(
+						range_lines_, range_shifts_, range_chars_, mid, end_,
+						count_));
+			} else if (end_ > first_) {
+				if (count_) {
+					int shift_count = 0;
+					long char_count = 0;
+					for (int i = range_lines_[first_]; i < range_lines_[end_]; i++) {
+						int word_count = countWords(i);
+						shift_count += word_count;
+						char_count += (long) word_count
+								* (lineEnd(i) - line_index_[i]);
+					}
+					range_shifts_[end_] = shift_count;
+					range_chars_[end_] = char_count;
+				} else
+					writeShifts(range_lines_[first_], range_lines_[end_],
+							range_shifts_[first_], (int) range_chars_[first_]);
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * A SortTask sorts a range of shifts. The sorted range is left either in
+	 * shifts_index_ and shifts_lines_len_ arrays, or in the temporary arrays.
+	 * 
+	 */
+
+	private class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Temporary shift starts
+		 * 
+		 */
+
+		private int[] tmp_index_;
+
+		/**
+		 * Temporary shift lengths
+		 * 
+		 */
+
+		private int[] tmp_len_;
+
+		/**
+		 * First shift of the range
+		 * 
+		 */
+
+		private int first_;
+
+		/**
+		 * Shift after the last shift of the range
+		 * 
+		 */
+
+		private int end_;
+
+		/**
+		 * Leave the sorted range in the temporary arrays if true
+		 * 
+		 */
+
+		private boolean to_tmp_;
+
+		public SortTask(int[] tmp_index, int[] tmp_len, int first, int end,
+				boolean to_tmp) {
+			tmp_index_ = tmp_index;
+			tmp_len_ = tmp_len;
+			first_ = first;
+			end_ = end;
+			to_tmp_ = to_tmp;
+		}
+
+		protected void compute() {
+			int count = end_ - first_;
+			if (count <= PARALLEL_SORT_SIZE) {
+				introSort(first_, end_ - 1,
+						2 * (32 - Integer.numberOfLeadingZeros(count)));
+				if (to_tmp_) {
+					System.arraycopy(shifts_index_, first_, tmp_index_, first_,
+							count);
+					System.arraycopy(shifts_lines_len_, first_, tmp_len_,
+							first_, count);
+				}
+				return;
+			}
+
+			// sort both halves into the other arrays and merge them back
+			int mid = (first_ + end_) >>> 1;
+			invokeAll(new SortTask(tmp_index_, tmp_len_, first_, mid, !to_tmp_),
+					new SortTask(tmp_index_, tmp_len_, mid, end_, !to_tmp_));
+			if (to_tmp_)
+				new MergeTask(shifts_index_, shifts_lines_len_, first_, mid,
+						mid, end_, tmp_index_, tmp_len_, first_).compute();
+			else
+				new MergeTask(tmp_index_, tmp_len_, first_, mid, mid, end_,
+						shifts_index_, shifts_lines_len_, first_).compute();
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	/**
+	 * A MergeTask merges two sorted runs of shifts into the destination
+	 * arrays. Large runs are split into two independent merges.
+	 * 
+	 */
+
+	private class MergeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Shift starts of both runs
+		 * 
+		 */
+
+		private int[] index_;
+
+		/**
+		 * Shift lengths of both runs
+		 * 
+		 */
+
+		private int[] len_;
+
+		/**
+		 * Bounds of the first run
+		 * 
+		 */
+
+		private int first1_, end1_;
+
+		/**
+		 * Bounds of the second run
+		 * 
+		 */
+
+		private int first2_, end2_;
+
+		/**
+		 * Destination shift starts
+		 * 
+		 */
+
+		private int[] dst_index_;
+
+		/**
+		 * Destination shift lengths
+		 * 
+		 */
+
+		private int[] dst_len_;
+
+		/**
+		 * Index of the first merged shift in the destination arrays
+		 * 
+		 */
+
+		private int dst_;
+
+		public MergeTask(int[] index, int[] len, int first1, int end1,
+				int first2, int end2, int[] dst_index, int[] dst_len, int dst) {
+			index_ = index;
+			len_ = len;
+			first1_ = first1;
+			end1_ = end1;
+			first2_ = first2;
+			end2_ = end2;
+			dst_index_ = dst_index;
+			dst_len_ = dst_len;
+			dst_ = dst;
+		}
+
+		protected void compute() {
+			int count1 = end1_ - first1_;
+			int count2 = end2_ - first2_;
+			if (count1 + count2 <= PARALLEL_MERGE_SIZE) {
+				merge();
+				return;
+			}
+
+			// split the larger run at its middle, and the other run where
+			// the middle shift belongs; shifts of the first run go before
+			// equal shifts of the second run
+			int mid1, mid2;
+			if (count1 >= count2) {
+				mid1 = (first1_ + end1_) >>> 1;
+				mid2 = search(first2_, end2_, index_[mid1], len_[mid1], false);
+			} else {
+				mid2 = (first2_ + end2_) >>> 1;
+				mid1 = search(first1_, end1_, index_[mid2], len_[mid2], true);
+			}
+			invokeAll(new MergeTask(index_, len_, first1_, mid1, first2_,
+					mid2, dst_index_, dst_len_, dst_), new MergeTask(index_,
+					len_, mid1, end1_, mid2, end2_, dst_index_, dst_len_, dst_
+							+ (mid1 - first1_) + (mid2 - first2_)));
+		}
+
+		// ----------------------------------------------------------------------
+		/**
+		 * Finds the first shift in a sorted run which is greater than (or
+		 * equal to) the given shift.
+		 * 
+		 * @param first
+		 *            first shift of the run
+		 * @param end
+		 *            shift after the last shift of the run
+		 * @param start
+		 *            start of the given shift
+		 * @param length
+		 *            length of the given shift
+		 * @param after_equal
+		 *            skip shifts equal to the given shift if true
+		 * @return int
+		 */
+
+		private int search(int first, int end, int start, int length,
+				boolean after_equal) {
+			while (first < end) {
+				int mid = (first + end) >>> 1;
+				int compared = compareShifts(index_[mid], len_[mid], start,
+						length);
+				if (compared < 0 || (after_equal && compared == 0))
+					first = mid + 1;
+				else
+					end = mid;
+			}
+			return first;
+		}
+
+		// ----------------------------------------------------------------------
+		/**
+		 * Merges both runs by one thread.
+		 * 
+		 * @return void
+		 */
+
+		private void merge() {
+			int i = first1_;
+			int j = first2_;
+			int k = dst_;
+			while (i < end1_ && j < end2_) {
+				if (compareShifts(index_[i], len_[i], index_[j], len_[j]) <= 0) {
+					dst_index_[k] = index_[i];
+					dst_len_[k++] = len_[i++];
+				} else {
+					dst_index_[k] = index_[j];
+					dst_len_[k++] = len_[j++];
+				}
+			}
+			System.arraycopy(index_, i, dst_index_, k, end1_ - i);
+			System.arraycopy(len_, i, dst_len_, k, end1_ - i);
+			k += end1_ - i;
+			System.arraycopy(index_, j, dst_index_, k, end2_ - j);
+			System.arraycopy(len_, j, dst_len_, k, end2_ - j);
+		}
+	}
+
 }
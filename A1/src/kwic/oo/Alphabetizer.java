@@ -29,10 +29,23 @@ package kwic.oo;
  * $Log$
 */
 
+import java.util.Arrays;
+
 /**
  *  An object of the Alphabetizer class sorts all lines, that it gets
  *  from an instance of the CircularShifter class. Methods to access the
  *  set of sorted lines are provided by the Alphabetizer class as well.
+ *  <p>
+ *  In the keyed mode the lines are not compared as strings. Instead, a sort key is
+ *  computed once for each line before sorting: the first four characters of the line
+ *  packed into a single long value, the first character in the highest 16 bits. Two
+ *  lines are compared by their keys, which is a single comparison of two primitive
+ *  values. Only if the keys are equal, the lines are compared character by character,
+ *  directly from the words provided by the shifter. Thus, no strings are created while
+ *  sorting.
+ *  <p>
+ *  Lines which are added to the shifter after sorting may be inserted into the sorted
+ *  lines one by one by means of binary search (see update method).
  *  @author  dhelic
  *  @version $Id$
 */
@@ -51,7 +64,29 @@ public class Alphabetizer{
  *
  */
 
-  private int sorted_[];
+  private int sorted_[] = new int[0];
+
+/**
+ * Array holding sort keys of the lines in the keyed mode, in the
+ * same order as the sorted indices
+ *
+ */
+
+  private long keys_[];
+
+/**
+ * Number of sorted lines
+ *
+ */
+
+  private int line_count_ = 0;
+
+/**
+ * Keyed mode flag
+ *
+ */
+
+  private boolean is_keyed_ = false;
 
 /**
  * CircularShifter that provides lines
@@ -74,6 +109,19 @@ public class Alphabetizer{
  */
 //----------------------------------------------------------------------
 
+//----------------------------------------------------------------------
+/**
+ * Sets the keyed mode. In the keyed mode lines are compared by
+ * their sort keys first, and character by character only if the keys
+ * are equal.
+ * @param is_keyed keyed mode flag
+ * @return void
+ */
+
+  public void setKeyed(boolean is_keyed){
+    is_keyed_ = is_keyed;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Sorts all lines provided by shifter alphabetically.
@@ -87,10 +135,19 @@ public class Alphabetizer{
     shifter_ = shifter;
 
         // initialize the index array
-    sorted_ = new int[shifter_.getLineCount()];
+    line_count_ = shifter_.getLineCount();
+    sorted_ = new int[line_count_];
     for(int i = 0; i < sorted_.length; i++)
       sorted_[i] = i;
 
+        // compute the sort keys in the keyed mode
+    keys_ = null;
+    if(is_keyed_){
+      keys_ = new long[sorted_.length];
+      for(int i = 0; i < keys_.length; i++)
+        keys_[i] = getKey(i);
+    }
+
         // heap sort algorithm
         // heap is a complete tree where the value of a node
         // is greater than the value of its children
@@ -111,15 +168,64 @@ public class Alphabetizer{
     for(int i = (sorted_.length - 1); i >= 1; i--){
       
           // remove the root
-      int tmp = sorted_[0];
-      sorted_[0] = sorted_[i];
-      sorted_[i] = tmp;
+      swap(0, i);
       
           // recreate the heap
       shiftDown(0, i);      
       }
   }
 
+//----------------------------------------------------------------------
+/**
+ * Inserts the lines which have been added to the shifter since the last
+ * sorting into the sorted lines. The position of each new line is found
+ * by binary search, and the following indices are moved by one position.
+ * Thus, adding a line costs O(log n) comparisons and a single array copy,
+ * instead of sorting all lines again. The shifter must be the same as in
+ * the last call of alpha method, and its old lines must not be changed.
+ * @return void
+ * @see #alpha
+ */
+
+  public void update(){
+
+        // the keys are missing if the keyed mode has been changed
+    if(is_keyed_ != (keys_ != null)){
+      alpha(shifter_);
+      return;
+    }
+    int count = shifter_.getLineCount();
+    if(count > sorted_.length){
+      int size = Math.max(sorted_.length * 2, count);
+      sorted_ = Arrays.copyOf(sorted_, size);
+      if(keys_ != null)
+        keys_ = Arrays.copyOf(keys_, size);
+    }
+    for(int line = line_count_; line < count; line++){
+      long key = is_keyed_ ? getKey(line) : 0;
+
+          // find the first sorted line which is greater than the new line
+      int low = 0;
+      int high = line_count_;
+      while(low < high){
+        int mid = (low + high) >>> 1;
+        if(compare(line, key, sorted_[mid], is_keyed_ ? keys_[mid] : 0) < 0)
+          high = mid;
+        else
+          low = mid + 1;
+      }
+
+          // insert the new line at that position
+      System.arraycopy(sorted_, low, sorted_, low + 1, line_count_ - low);
+      sorted_[low] = line;
+      if(is_keyed_){
+        System.arraycopy(keys_, low, keys_, low + 1, line_count_ - low);
+        keys_[low] = key;
+      }
+      line_count_++;
+    }
+  }
+
 //----------------------------------------------------------------------
 /**
  * This method builds and reconstucts the heap for the heap sort algorithm.
@@ -129,16 +235,12 @@ public class Alphabetizer{
 
   private void shiftDown(int root, int bottom){    
     int max_child = root * 2 + 1;
-
     while(max_child < bottom){
       if((max_child + 1) < bottom)
-        if(shifter_.getLineAsString(sorted_[max_child + 1]).compareTo(shifter_.getLineAsString(sorted_[max_child])) > 0)
+        if(compare(max_child + 1, max_child) > 0)
           max_child++;
-
-      if(shifter_.getLineAsString(sorted_[root]).compareTo(shifter_.getLineAsString(sorted_[max_child])) < 0){
-        int tmp = sorted_[root];
-        sorted_[root] = sorted_[max_child];
-        sorted_[max_child] = tmp;
+      if(compare(root, max_child) < 0){
+        swap(root, max_child);
         root = max_child;
         max_child = root * 2 + 1;
       }else
@@ -146,6 +248,143 @@ public class Alphabetizer{
     }    
   }
 
+//----------------------------------------------------------------------
+/**
+ * Compares two lines from the specified positions in the index array.
+ * In the keyed mode the keys are compared first.
+ * @param a position of the first line
+ * @param b position of the second line
+ * @return int negative, zero or positive if the first line is smaller,
+ * equal or greater than the second line
+ */
+
+  private int compare(int a, int b){
+    return is_keyed_ ? compare(sorted_[a], keys_[a], sorted_[b], keys_[b])
+      : compare(sorted_[a], 0, sorted_[b], 0);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Compares two lines from the shifter. In the keyed mode the keys are
+ * compared first.
+ * @param a index of the first line in the shifter
+ * @param key_a key of the first line, ignored if not in the keyed mode
+ * @param b index of the second line in the shifter
+ * @param key_b key of the second line, ignored if not in the keyed mode
+ * @return int negative, zero or positive if the first line is smaller,
+ * equal or greater than the second line
+ */
+
+  private int compare(int a, long key_a, int b, long key_b){
+    if(!is_keyed_)
+      return shifter_.getLineAsString(a).compareTo(shifter_.getLineAsString(b));
+    int compared = Long.compareUnsigned(key_a, key_b);
+    return (compared != 0) ? compared : compareLines(a, b);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Swaps two lines in the index array, and their keys in the keyed mode.
+ * @param a position of the first line
+ * @param b position of the second line
+ * @return void
+ */
+
+  private void swap(int a, int b){
+    int tmp = sorted_[a];
+    sorted_[a] = sorted_[b];
+    sorted_[b] = tmp;
+    if(keys_ != null){
+      long key = keys_[a];
+      keys_[a] = keys_[b];
+      keys_[b] = key;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Computes the sort key of a line. The key holds the first four characters
+ * of the line, including the space characters delimiting the words.
+ * Missing characters of shorter lines are 0. Thus, if the key of a line
+ * is smaller than the key of another line, the line is smaller as well.
+ * @param line line index in the shifter
+ * @return long
+ */
+
+  private long getKey(int line){
+    long key = 0;
+    int count = 0;
+    int word_count = shifter_.getWordCount(line);
+    for(int i = 0; i < word_count && count < 4; i++){
+      if(i > 0){
+        key = (key << 16) | ' ';
+        count++;
+      }
+      int char_count = shifter_.getCharCount(i, line);
+      for(int j = 0; j < char_count && count < 4; j++){
+        key = (key << 16) | shifter_.getChar(j, i, line);
+        count++;
+      }
+    }
+    return (count == 0) ? 0 : key << (16 * (4 - count));
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Compares two lines alphabetically, character by character, like strings
+ * are compared. The words delimited by single space characters are read
+ * directly from the shifter.
+ * @param a index of the first line in the shifter
+ * @param b index of the second line in the shifter
+ * @return int negative, zero or positive if the first line is smaller,
+ * equal or greater than the second line
+ */
+
+  private int compareLines(int a, int b){
+
+        // current word, its next character and its length
+    int words_a = shifter_.getWordCount(a);
+    int word_a = 0;
+    int position_a = 0;
+    int length_a = (words_a > 0) ? shifter_.getCharCount(0, a) : 0;
+    int words_b = shifter_.getWordCount(b);
+    int word_b = 0;
+    int position_b = 0;
+    int length_b = (words_b > 0) ? shifter_.getCharCount(0, b) : 0;
+
+    while(true){
+
+          // the next character of the first line, -1 at the end
+      int c_a;
+      if(position_a < length_a)
+        c_a = shifter_.getChar(position_a++, word_a, a);
+      else if(word_a + 1 < words_a){
+        c_a = ' ';
+        word_a++;
+        position_a = 0;
+        length_a = shifter_.getCharCount(word_a, a);
+      }else
+        c_a = -1;
+
+          // the next character of the second line, -1 at the end
+      int c_b;
+      if(position_b < length_b)
+        c_b = shifter_.getChar(position_b++, word_b, b);
+      else if(word_b + 1 < words_b){
+        c_b = ' ';
+        word_b++;
+        position_b = 0;
+        length_b = shifter_.getCharCount(word_b, b);
+      }else
+        c_b = -1;
+
+      if(c_a != c_b)
+        return c_a - c_b;
+      if(c_a == -1)
+        return 0;
+    }
+  }
+
 //----------------------------------------------------------------------
 /**
  * Gets the line from the specified position.
@@ -182,7 +421,7 @@ public class Alphabetizer{
 //	  if (shifter_ == null) {
 //		  return 0;
 //	  }
-    return shifter_.getLineCount();
+    return line_count_;
   }
 
 //----------------------------------------------------------------------
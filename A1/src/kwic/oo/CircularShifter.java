@@ -29,6 +29,8 @@ package kwic.oo;
  * $Log$
 */
 
+import java.util.Arrays;
+
 /**
  *  An object of the CircularShifter class produces and holds all circular shifts of
  *  a set of lines. A set of lines may be passed to a CircularShifter object,
@@ -40,6 +42,17 @@ package kwic.oo;
  *  lines. Also, the CircularShifter class does not provide interface for
  *  updating of characters, words, and lines that it holds, but just an
  *  interface for reading characters, words, and lines.
+ *  <p>
+ *  The words of the circular shifts are not copied. A circular shift is stored
+ *  as a pair of indices: the index of the original line, and the index of the
+ *  word of the original line which is the first word of the shift. The words of
+ *  a shift are read from the original line by index arithmetic, i.e., the i-th word
+ *  of a shift is the ((i + shift) mod n)-th word of the original line with n words.
+ *  Thus, the memory used by the shifts is proportional to the number of words, and
+ *  not to the sum of squared line lengths. Since the original lines are not copied,
+ *  the shifts have to be set up again if the words of the original lines are
+ *  changed. A new line may be added to the shifts without setting up the shifts
+ *  of all other lines again (see addLine method).
  *  @author  dhelic
  *  @version $Id$
 */
@@ -54,11 +67,33 @@ public class CircularShifter{
 //----------------------------------------------------------------------
 
 /**
- * LineStorage for circular shifts
+ * LineStorage holding the original lines
+ *
+ */
+
+  private LineStorage lines_ = new LineStorage();
+
+/**
+ * Index of the original line of each circular shift
  *
  */
 
-  private LineStorage shifts_ = new LineStorage();
+  private int[] shift_lines_ = new int[0];
+
+/**
+ * Index of the word of the original line which is the first word of
+ * each circular shift
+ *
+ */
+
+  private int[] shift_words_ = new int[0];
+
+/**
+ * Number of circular shifts
+ *
+ */
+
+  private int shift_count_ = 0;
 
 //----------------------------------------------------------------------
 /**
@@ -91,33 +126,71 @@ public class CircularShifter{
 
   public void setup(LineStorage lines){
 
-        // initialize the shifts instance variable
-    shifts_ = new LineStorage();
-    
+        // keep the original lines
+    lines_ = lines;
+
+        // count the shifts, a line has as many shifts as words
+    int count = 0;
+    for(int i = 0; i < lines.getLineCount(); i++)
+      count += lines.getWordCount(i);
+
+        // initialize the shifts instance variables
+    shift_lines_ = new int[count];
+    shift_words_ = new int[count];
+    shift_count_ = count;
+
         // iterate through all lines from the original set
+        // and add a shift for each word of the current line
+    count = 0;
     for(int i = 0; i < lines.getLineCount(); i++){
-      
-          // current line
-      String[] line = lines.getLine(i);
-      
-          // iterate through all words of the current line
-      for(int j = 0; j < line.length; j++){
-        
-            // add a new empty line for the current shift
-        shifts_.addEmptyLine();
-        
-            // add all words of the current shift
-        for(int k = j; k < (line.length + j); k++)
-
-              // add current word to the last line
-              // index is the remainder of dividing k and line.length
-          shifts_.addWord(line[k % line.length], shifts_.getLineCount() - 1);
-
-      }
-      
+      int word_count = lines.getWordCount(i);
+      Arrays.fill(shift_lines_, count, count + word_count, i);
+      for(int j = 0; j < word_count; j++)
+        shift_words_[count++] = j;
     }
   }
 
+//----------------------------------------------------------------------
+/**
+ * Produces the circular shifts of a line which has been added to the set
+ * of lines after the setup. The new shifts are appended after all other
+ * shifts, the other shifts keep their indices. Thus, adding a line takes
+ * time proportional to the number of its words.
+ * @param line index of the new line in the set of lines
+ * @see #setup
+ * @return void
+ */
+
+  public void addLine(int line){
+    int word_count = lines_.getWordCount(line);
+    if(shift_count_ + word_count > shift_lines_.length){
+      int size = Math.max(shift_lines_.length * 2, shift_count_ + word_count);
+      shift_lines_ = Arrays.copyOf(shift_lines_, size);
+      shift_words_ = Arrays.copyOf(shift_words_, size);
+    }
+    for(int j = 0; j < word_count; j++){
+      shift_lines_[shift_count_] = line;
+      shift_words_[shift_count_++] = j;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index of the word of the original line for the specified
+ * word of a circular shift
+ * @param word word index in the shift
+ * @param line shift index
+ * @return int
+ */
+
+  private int getOriginalWord(int word, int line){
+    int word_count = lines_.getWordCount(shift_lines_[line]);
+    if(word < 0 || word >= word_count)
+      throw new IndexOutOfBoundsException("Word: " + word + ", Size: " + word_count);
+    word += shift_words_[line];
+    return (word >= word_count) ? word - word_count : word;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Gets the character from the specified position in the specified word 
@@ -129,7 +202,7 @@ public class CircularShifter{
  */
 
   public char getChar(int position, int word, int line){
-    return shifts_.getChar(position, word, line);
+    return lines_.getChar(position, getOriginalWord(word, line), shift_lines_[line]);
   }
 
 /**
@@ -140,7 +213,7 @@ public class CircularShifter{
  */
 
   public int getCharCount(int word, int line){
-    return shifts_.getCharCount(word, line);
+    return lines_.getCharCount(getOriginalWord(word, line), shift_lines_[line]);
   }
 
 //----------------------------------------------------------------------
@@ -153,7 +226,7 @@ public class CircularShifter{
  */
 
   public String getWord(int word, int line){
-    return shifts_.getWord(word, line);
+    return lines_.getWord(getOriginalWord(word, line), shift_lines_[line]);
   }
 
 //----------------------------------------------------------------------
@@ -164,7 +237,7 @@ public class CircularShifter{
  */
 
   public int getWordCount(int line){
-    return shifts_.getWordCount(line);
+    return lines_.getWordCount(shift_lines_[line]);
   }
 
 //----------------------------------------------------------------------
@@ -177,9 +250,15 @@ public class CircularShifter{
  */
 
   public String[] getLine(int line){
-    return shifts_.getLine(line);
-  }
+    String[] words = lines_.getLine(shift_lines_[line]);
+    int shift = shift_words_[line];
 
+        // rotate the words of the original line
+    String[] tmp = new String[words.length];
+    System.arraycopy(words, shift, tmp, 0, words.length - shift);
+    System.arraycopy(words, 0, tmp, words.length - shift, shift);
+    return tmp;
+  }
 
 //----------------------------------------------------------------------
 /**
@@ -191,7 +270,18 @@ public class CircularShifter{
  */
 
   public String getLineAsString(int line){
-    return shifts_.getLineAsString(line);
+    int original = shift_lines_[line];
+    int shift = shift_words_[line];
+    String tmp = lines_.getLineAsString(original);
+    if(shift == 0)
+      return tmp;
+
+        // the shift starts behind the words before the first word
+        // of the shift and the space characters delimiting them
+    int start = shift;
+    for(int i = 0; i < shift; i++)
+      start += lines_.getCharCount(i, original);
+    return tmp.substring(start) + ' ' + tmp.substring(0, start - 1);
   }
 
 //----------------------------------------------------------------------
@@ -201,10 +291,7 @@ public class CircularShifter{
  */
 
   public int getLineCount(){
-//	  if (shifts_ == null) {
-//		  return 0;
-//	  }
-    return shifts_.getLineCount();
+    return shift_count_;
   }
 
 //----------------------------------------------------------------------
@@ -0,0 +1,702 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    ColumnarLineStorage.java
+ *
+ *  Purpose: LineStorage which keeps all lines in a few primitive arrays.
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    LineStorage which keeps all lines in a few primitive arrays.
+ * </file>
+*/
+
+package kwic.oo;
+
+/*
+ * $Log$
+*/
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ *  An object of the ColumnarLineStorage class holds a number of lines and provides
+ *  the same public methods to manipulate the lines as the LineStorage class. However,
+ *  it does not keep a list of words for each line and a string for each word. Instead,
+ *  all lines are kept in a few primitive arrays:
+ *  <ul>
+ *  <li>A character array holds the characters of all words one after another
+ *  <li>Two integer arrays hold the start index of each word in the character array, and
+ *  the length of each word. The words of a line are stored one after another, and the
+ *  lines are stored one after another as well
+ *  <li>An integer array holds the index of the first word of each line
+ *  </ul>
+ *  Thus, a word costs two integers and its characters, regardless of the number of words
+ *  and lines. Reading lines one after another scans the arrays sequentially.
+ *  <p>
+ *  Characters are updated in place. A word which grows is moved to the end of the
+ *  character array, and its old characters are left unused. Unused characters are removed
+ *  when the character array is full. Adding words and lines at the end takes constant
+ *  amortized time, whereas adding or deleting words in the middle moves the words of all
+ *  following lines, like adding or deleting elements in the middle of an array list.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class ColumnarLineStorage extends LineStorage{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Initial size of the character array
+ *
+ */
+
+  private static final int CHARS_SIZE = 4096;
+
+/**
+ * Initial size of the word arrays
+ *
+ */
+
+  private static final int WORDS_SIZE = 256;
+
+/**
+ * Characters of all words
+ *
+ */
+
+  private char[] chars_ = new char[CHARS_SIZE];
+
+/**
+ * Count of used characters in the character array, including unused
+ * characters of moved and deleted words
+ *
+ */
+
+  private int char_count_ = 0;
+
+/**
+ * Count of the characters of all words
+ *
+ */
+
+  private int live_char_count_ = 0;
+
+/**
+ * Start index of each word in the character array
+ *
+ */
+
+  private int[] word_starts_ = new int[WORDS_SIZE];
+
+/**
+ * Length of each word
+ *
+ */
+
+  private int[] word_lengths_ = new int[WORDS_SIZE];
+
+/**
+ * Count of words of all lines
+ *
+ */
+
+  private int word_count_ = 0;
+
+/**
+ * Index of the first word of each line. An additional last element holds
+ * the count of words, so that a line ends where the next line starts.
+ *
+ */
+
+  private int[] lines_ = new int[WORDS_SIZE + 1];
+
+/**
+ * Count of lines
+ *
+ */
+
+  private int line_count_ = 0;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * This method sets a new character on the specified index of
+ * a particular word in a particular line
+ * @param c new character
+ * @param position character index in the word
+ * @param word word index in the line
+ * @param line line index
+ * @return void
+ * @see #getChar
+ * @see #addChar
+ * @see #deleteChar
+ */
+
+  public void setChar(char c, int position, int word, int line){
+    int index = getWordIndex(word, line);
+    Objects.checkIndex(position, word_lengths_[index]);
+    chars_[word_starts_[index] + position] = c;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the character from the specified position in the specified word
+ * in a particular line
+ * @param position character index in the word
+ * @param word word index in the line
+ * @param line line index
+ * @return char
+ * @see #setChar
+ * @see #addChar
+ * @see #deleteChar
+ */
+
+  public char getChar(int position, int word, int line){
+    int index = getWordIndex(word, line);
+    Objects.checkIndex(position, word_lengths_[index]);
+    return chars_[word_starts_[index] + position];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Adds a character at the end of the specified word in a particular line.
+ * @param c new character
+ * @param word word index in the line
+ * @param line line index
+ * @return void
+ * @see #setChar
+ * @see #getChar
+ * @see #deleteChar
+ */
+
+  public void addChar(char c, int word, int line){
+    int index = getWordIndex(word, line);
+    int length = word_lengths_[index];
+
+        // the last word in the character array grows in place,
+        // any other word is moved to the end of the array
+    if(word_starts_[index] + length == char_count_ && char_count_ < chars_.length){
+      char_count_++;
+      live_char_count_++;
+    }else{
+      int start = allocate(length + 1);
+      System.arraycopy(chars_, word_starts_[index], chars_, start, length);
+      live_char_count_ -= length;
+      word_starts_[index] = start;
+    }
+    chars_[word_starts_[index] + length] = c;
+    word_lengths_[index] = length + 1;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Deletes the character from the specified position in the specified word
+ * in a particular line
+ * @param position character index in the word
+ * @param word word index in the line
+ * @param line line index
+ * @return void
+ * @see #setChar
+ * @see #getChar
+ * @see #addChar
+ */
+
+  public void deleteChar(int position, int word, int line){
+    int index = getWordIndex(word, line);
+    int length = word_lengths_[index];
+    Objects.checkIndex(position, length);
+    int start = word_starts_[index];
+    System.arraycopy(chars_, start + position + 1, chars_, start + position,
+                     length - position - 1);
+    word_lengths_[index] = length - 1;
+    live_char_count_--;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of characters in this particular word.
+ * @param word word index in the line
+ * @param line line index
+ * @return int
+ */
+
+  public int getCharCount(int word, int line){
+    return word_lengths_[getWordIndex(word, line)];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method sets a new word on the specified index of a particular line.
+ * Character array is taken as an argument for the word.
+ * @param chars new word
+ * @param word word index in the line
+ * @param line line index
+ * @return void
+ * @see #getWord
+ * @see #addWord
+ * @see #addEmptyWord
+ * @see #deleteWord
+ */
+
+  public void setWord(char[] chars, int word, int line){
+    int start = reserve(getWordIndex(word, line), chars.length);
+    System.arraycopy(chars, 0, chars_, start, chars.length);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method sets a new word on the specified index of a particular line.
+ * String is taken as an argument for the word.
+ * @param chars new word
+ * @param word word index in the line
+ * @param line line index
+ * @return void
+ * @see #getWord
+ * @see #addWord
+ * @see #addEmptyWord
+ * @see #deleteWord
+ */
+
+  public void setWord(String chars, int word, int line){
+    int start = reserve(getWordIndex(word, line), chars.length());
+    chars.getChars(0, chars.length(), chars_, start);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the word from the specified position in a particular line
+ * String representing the word is returned.
+ * @param word word index in the line
+ * @param line line index
+ * @return String
+ * @see #setWord
+ * @see #addWord
+ * @see #addEmptyWord
+ * @see #deleteWord
+ */
+
+  public String getWord(int word, int line){
+    int index = getWordIndex(word, line);
+    return new String(chars_, word_starts_[index], word_lengths_[index]);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Adds a word at the end of the specified line.
+ * The method takes a character array as an argument.
+ * @param chars new word
+ * @param line line index
+ * @return void
+ * @see #addEmptyWord
+ * @see #setWord
+ * @see #getWord
+ * @see #deleteWord
+ */
+
+  public void addWord(char[] chars, int line){
+    int start = reserve(insertWords(line, getWordCount(line), 1), chars.length);
+    System.arraycopy(chars, 0, chars_, start, chars.length);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Adds a word at the end of the specified line.
+ * The method takes a string as an argument.
+ * @param chars new word
+ * @param line line index
+ * @return void
+ * @see #addEmptyWord
+ * @see #setWord
+ * @see #getWord
+ * @see #deleteWord
+ */
+
+  public void addWord(String chars, int line){
+    int start = reserve(insertWords(line, getWordCount(line), 1), chars.length());
+    chars.getChars(0, chars.length(), chars_, start);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Adds an empty word at the end of the specified line.
+ * @param line line index
+ * @return void
+ * @see #setWord
+ * @see #getWord
+ * @see #addWord
+ * @see #deleteWord
+ */
+
+  public void addEmptyWord(int line){
+    insertWords(line, getWordCount(line), 1);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Deletes the word from the specified position in a particular line
+ * @param word word index in the line
+ * @param line line index
+ * @return void
+ * @see #setWord
+ * @see #getWord
+ * @see #addWord
+ * @see #addEmptyWord
+ */
+
+  public void deleteWord(int word, int line){
+    Objects.checkIndex(word, getWordCount(line));
+    removeWords(line, word, 1);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of words in this particular line
+ * @param line line index
+ * @return int
+ */
+
+  public int getWordCount(int line){
+    Objects.checkIndex(line, line_count_);
+    return lines_[line + 1] - lines_[line];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method sets a new line on the specified index.
+ * This method takes two dimensional character array as an argument
+ * for the line.
+ * @param words new line
+ * @param line line index
+ * @return void
+ * @see #getLine
+ * @see #getLineAsString
+ * @see #addLine
+ * @see #addEmptyLine
+ * @see #deleteLine
+ */
+
+  public void setLine(char[][] words, int line){
+    removeWords(line, 0, getWordCount(line));
+    int index = insertWords(line, 0, words.length);
+    for(int i = 0; i < words.length; i++){
+      int start = reserve(index + i, words[i].length);
+      System.arraycopy(words[i], 0, chars_, start, words[i].length);
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method sets a new line on the specified index.
+ * This method takes a string array as argument
+ * @param words new line
+ * @param line line index
+ * @return void
+ * @see #getLine
+ * @see #getLineAsString
+ * @see #addLine
+ * @see #addEmptyLine
+ * @see #deleteLine
+ */
+
+  public void setLine(String[] words, int line){
+    removeWords(line, 0, getWordCount(line));
+    int index = insertWords(line, 0, words.length);
+    for(int i = 0; i < words.length; i++){
+      int start = reserve(index + i, words[i].length());
+      words[i].getChars(0, words[i].length(), chars_, start);
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the line from the specified position.
+ * String array representing the line is returned.
+ * @param line line index
+ * @return String[]
+ * @see #setLine
+ * @see #getLineAsString
+ * @see #addLine
+ * @see #addEmptyLine
+ * @see #deleteLine
+ */
+
+  public String[] getLine(int line){
+    String[] tmp = new String[getWordCount(line)];
+    int index = lines_[line];
+    for(int i = 0; i < tmp.length; i++, index++)
+      tmp[i] = new String(chars_, word_starts_[index], word_lengths_[index]);
+    return tmp;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the line from the specified position.
+ * A single String representing the line is returned.
+ * @param line line index
+ * @return String
+ * @see #setLine
+ * @see #getLine
+ * @see #addLine
+ * @see #addEmptyLine
+ * @see #deleteLine
+ */
+
+  public String getLineAsString(int line){
+    int size = getWordCount(line);
+    int first = lines_[line];
+    int end = first + size;
+
+        // calculate the length of the line with the space characters
+        // delimiting the words
+    int length = Math.max(size - 1, 0);
+    for(int i = first; i < end; i++)
+      length += word_lengths_[i];
+
+        // create the String representation of the line
+    char[] tmp = new char[length];
+    int count = 0;
+    for(int i = first; i < end; i++){
+      if(i != first)
+        tmp[count++] = ' ';
+      System.arraycopy(chars_, word_starts_[i], tmp, count, word_lengths_[i]);
+      count += word_lengths_[i];
+    }
+    return new String(tmp);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Adds a line at the end of the line array.
+ * Two dimensional array is the argument for the new line
+ * @param words new line
+ * @return void
+ * @see #addEmptyLine
+ * @see #setLine
+ * @see #getLine
+ * @see #deleteLine
+ */
+
+  public void addLine(char[][] words){
+    addEmptyLine();
+    setLine(words, line_count_ - 1);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Adds a line at the end of the line array.
+ * String array is the argument for the new line
+ * @param words new line
+ * @return void
+ * @see #addEmptyLine
+ * @see #setLine
+ * @see #getLine
+ * @see #deleteLine
+ */
+
+  public void addLine(String[] words){
+    addEmptyLine();
+    setLine(words, line_count_ - 1);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Adds an empty line at the end of the lines array.
+ * @return void
+ * @see #setLine
+ * @see #getLine
+ * @see #getLineAsString
+ * @see #addLine
+ * @see #deleteLine
+ */
+
+  public void addEmptyLine(){
+    if(line_count_ + 2 > lines_.length)
+      lines_ = Arrays.copyOf(lines_, lines_.length * 2);
+    line_count_++;
+    lines_[line_count_] = word_count_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Deletes the line from the specified position.
+ * @param line line index
+ * @return void
+ * @see #setLine
+ * @see #getLine
+ * @see #getLineAsString
+ * @see #addLine
+ * @see #addEmptyLine
+ */
+
+  public void deleteLine(int line){
+    removeWords(line, 0, getWordCount(line));
+
+        // the line is empty now, so it starts where the next line starts
+    System.arraycopy(lines_, line + 1, lines_, line, line_count_ - line);
+    line_count_--;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of lines
+ * @return int
+ */
+
+  public int getLineCount(){
+    return line_count_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index of the specified word in the word arrays
+ * @param word word index in the line
+ * @param line line index
+ * @return int
+ */
+
+  private int getWordIndex(int word, int line){
+    Objects.checkIndex(word, getWordCount(line));
+    return lines_[line] + word;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inserts empty words into a line. The words of all following lines
+ * are moved.
+ * @param line line index
+ * @param word word index in the line where the new words are inserted
+ * @param count number of the new words
+ * @return int index of the first new word in the word arrays
+ */
+
+  private int insertWords(int line, int word, int count){
+    int index = lines_[line] + word;
+    if(word_count_ + count > word_starts_.length){
+      int size = Math.max(word_starts_.length * 2, word_count_ + count);
+      word_starts_ = Arrays.copyOf(word_starts_, size);
+      word_lengths_ = Arrays.copyOf(word_lengths_, size);
+    }
+    System.arraycopy(word_starts_, index, word_starts_, index + count, word_count_ - index);
+    System.arraycopy(word_lengths_, index, word_lengths_, index + count, word_count_ - index);
+    for(int i = index; i < index + count; i++){
+      word_starts_[i] = char_count_;
+      word_lengths_[i] = 0;
+    }
+    word_count_ += count;
+    for(int i = line + 1; i <= line_count_; i++)
+      lines_[i] += count;
+    return index;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Removes words from a line. The words of all following lines
+ * are moved.
+ * @param line line index
+ * @param word word index in the line of the first removed word
+ * @param count number of the removed words
+ * @return void
+ */
+
+  private void removeWords(int line, int word, int count){
+    int index = lines_[line] + word;
+    for(int i = index; i < index + count; i++)
+      live_char_count_ -= word_lengths_[i];
+    System.arraycopy(word_starts_, index + count, word_starts_, index,
+                     word_count_ - index - count);
+    System.arraycopy(word_lengths_, index + count, word_lengths_, index,
+                     word_count_ - index - count);
+    word_count_ -= count;
+    for(int i = line + 1; i <= line_count_; i++)
+      lines_[i] -= count;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Makes room for new characters of a word. A word which does not grow
+ * keeps its place, otherwise it gets new characters at the end of the
+ * character array.
+ * @param index index of the word in the word arrays
+ * @param length new length of the word
+ * @return int start index of the word in the character array
+ */
+
+  private int reserve(int index, int length){
+    if(length > word_lengths_[index])
+      word_starts_[index] = allocate(length);
+    else
+      live_char_count_ += length;
+    live_char_count_ -= word_lengths_[index];
+    word_lengths_[index] = length;
+    return word_starts_[index];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Allocates characters at the end of the character array. If the array
+ * is full, a new array is created, which holds only the characters of
+ * the current words. Thus, the start indices of the words and the character
+ * array itself may change.
+ * @param length number of the allocated characters
+ * @return int start index of the allocated characters
+ */
+
+  private int allocate(int length){
+    if(char_count_ + length > chars_.length){
+      char[] chars = new char[Math.max(CHARS_SIZE, (live_char_count_ + length) * 2)];
+      int count = 0;
+      for(int i = 0; i < word_count_; i++){
+        System.arraycopy(chars_, word_starts_[i], chars, count, word_lengths_[i]);
+        word_starts_[i] = count;
+        count += word_lengths_[i];
+      }
+      chars_ = chars;
+      char_count_ = count;
+    }
+    int start = char_count_;
+    char_count_ += length;
+    live_char_count_ += length;
+    return start;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
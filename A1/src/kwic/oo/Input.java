@@ -29,30 +29,31 @@ package kwic.oo;
  * $Log$
 */
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.Arrays;
 
-import java.util.StringTokenizer;
+import kwic.util.Tokenizer;
 
 /**
  *  An object of the Input class is responsible for reading and parsing the content of 
  *  a KWIC input file. The format of the KWIC input file is as follows:
  *  <ul>
+ *  <li>The file is encoded in UTF-8
  *  <li>Lines are separated by the line separator character(s) (on Unix '\n', on Windows '\r\n')
  *  <li>Each line consists of a number of words. Words are delimited by any number and combination
- *  of the space chracter (' ') and the horizontal tabulation chracter ('\t').
+ *  of white space characters, e.g. the space chracter (' ') and the horizontal tabulation
+ *  chracter ('\t').
  *  </ul>
  *  The entered data is parsed and stored in memory as an instance of the LineStorage class. The data
  *  is parsed in the following way:
  *  <ul>
  *  <li>All line separators are removed from the data; for each new line in the file a new line
  *  is added to the LineStorage instance
- *  <li>All horizontal tabulation word delimiters are removed
- *  <li>All space character word delimiters are removed
+ *  <li>All white space word delimiters are removed
  *  <li>From characters between any two word delimiters a new string is created; the new string
  *  is added to the LineStorage instance.
  *  </ul>
@@ -69,6 +70,21 @@ public class Input{
  */
 //----------------------------------------------------------------------
 
+/**
+ * Size of the byte buffer used by batch reads
+ *
+ */
+
+  public static final int BATCH_BUFFER_SIZE = 1 << 20;
+
+/**
+ * Tokenizer of the standard input, created by its first read. The commands
+ * and the data are read by this one tokenizer, since it may read ahead
+ *
+ */
+
+  private Tokenizer tokenizer_;
+
 //----------------------------------------------------------------------
 /**
  * Constructors
@@ -96,34 +112,25 @@ public class Input{
   public void parse(String file, LineStorage line_storage){
     try{
       
-          // open the file for reading
-//      BufferedReader reader = new BufferedReader(new FileReader(file));
-    	BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-
-          // read all lines until EOF occurs
-          // (Note that all line feed chracters are removed by the readLine() method)
-      String line = reader.readLine();
-//      while(line != null){
-        
-            // parse the line
-            // the default delimiter set for StringTokenizer
-            // is the set " \t\n\r\f" of characters
-            // (Note that the delimiter characters are not
-            // themselves treated as tokens)
-        StringTokenizer tokenizer = new StringTokenizer(line);
+          // open the standard input for reading, the tokenizer
+          // is kept since it may have read ahead the next lines
+      if(tokenizer_ == null)
+        tokenizer_ = new Tokenizer(System.in);
+
+          // read and parse the next line
+          // the tokenizer decodes UTF-8 and splits the line
+          // at white space characters
+      if(tokenizer_.nextLine()){
         
             // if this is not an empty line add a new empty line
             // to the line storage
-        if(tokenizer.countTokens() > 0)
+        if(tokenizer_.getWordCount() > 0)
           line_storage.addEmptyLine();
 
             // add all words from this line to the last line
-        while(tokenizer.hasMoreTokens())
-          line_storage.addWord(tokenizer.nextToken(), line_storage.getLineCount() - 1);
-        
-            // read next line
-//        line = reader.readLine();
-//      }
+        for(int i = 0; i < tokenizer_.getWordCount(); i++)
+          line_storage.addWord(tokenizer_.getWord(i), line_storage.getLineCount() - 1);
+      }
       
     }catch(FileNotFoundException exc){
 
@@ -142,6 +149,138 @@ public class Input{
     }
   }
 
+//----------------------------------------------------------------------
+/**
+ * This method reads and parses all lines of a KWIC input file in one call and
+ * adds them to the line storage. If the path names a directory all files in that
+ * directory and its subdirectories are read in the order of their names. If the
+ * path is "-" or null the standard input is read up to its end. The input is read
+ * in blocks of BATCH_BUFFER_SIZE bytes. Nothing else is done with the lines, thus
+ * a caller should make the shifts and sort them once after this method returns.
+ * If an I/O exception occurs during the execution of this method, an error message
+ * is shown and program exits.
+ * @param path name of a KWIC input file or a directory, "-" for the standard input
+ * @param line_storage holds the parsed data
+ * @return void
+ * @see #parse
+ */
+
+  public void parseAll(String path, LineStorage line_storage){
+    try{
+
+          // the standard input is read by the same tokenizer as in the
+          // parse method, since that tokenizer may have read ahead
+      if(isStandardInput(path)){
+        if(tokenizer_ == null)
+          tokenizer_ = new Tokenizer(System.in, BATCH_BUFFER_SIZE);
+        parseAll(tokenizer_, line_storage);
+      }else
+        parseAll(new File(path), line_storage);
+
+    }catch(FileNotFoundException exc){
+
+          // handle the exception if the file could not be found
+      exc.printStackTrace();
+      System.err.println("KWIC Error: Could not open " + path + " file.");
+      System.exit(1);
+
+    }catch(IOException exc){
+      
+          // handle other system I/O exception
+      exc.printStackTrace();
+      System.err.println("KWIC Error: Could not read " + path + " file.");
+      System.exit(1);
+      
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Reads the next line of the standard input, e.g. a command or a file name.
+ * The line is read by the same tokenizer as the data, thus no data which
+ * follows the line is lost. The words of the line are joined by single spaces.
+ * If an I/O exception occurs during the execution of this method, an error
+ * message is shown and program exits.
+ * @return String the line, or null at the end of the standard input
+ */
+
+  public String readLine(){
+    try{
+      if(tokenizer_ == null)
+        tokenizer_ = new Tokenizer(System.in);
+      if(!tokenizer_.nextLine())
+        return null;
+      int start = tokenizer_.getLineStart();
+      return new String(tokenizer_.getChars(), start, tokenizer_.getLineEnd() - start);
+
+    }catch(IOException exc){
+
+          // handle system I/O exception
+      exc.printStackTrace();
+      System.err.println("KWIC Error: Could not read the standard input.");
+      System.exit(1);
+      return null;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Checks if the specified path of the parseAll method names the standard
+ * input. After the standard input has been read by parseAll, it is at its end.
+ * @param path name of a KWIC input file or a directory, "-" for the standard input
+ * @return boolean
+ * @see #parseAll
+ */
+
+  public static boolean isStandardInput(String path){
+    return path == null || path.equals("-");
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Reads all lines of a file, or of all files in a directory, and adds them
+ * to the line storage.
+ * @param file file or directory
+ * @param line_storage holds the parsed data
+ * @return void
+ * @exception IOException if a file can not be read
+ */
+
+  private void parseAll(File file, LineStorage line_storage) throws IOException{
+    if(file.isDirectory()){
+      File[] files = file.listFiles();
+      if(files == null)
+        throw new IOException("Could not list " + file);
+      Arrays.sort(files);
+      for(int i = 0; i < files.length; i++)
+        if(!files[i].isHidden())
+          parseAll(files[i], line_storage);
+      return;
+    }
+    InputStream in = new FileInputStream(file);
+    try{
+      parseAll(new Tokenizer(in, BATCH_BUFFER_SIZE), line_storage);
+    }finally{
+      in.close();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Reads all remaining lines from the tokenizer and adds the lines which
+ * have words to the line storage.
+ * @param tokenizer tokenized input
+ * @param line_storage holds the parsed data
+ * @return void
+ * @exception IOException if the input can not be read
+ */
+
+  private void parseAll(Tokenizer tokenizer, LineStorage line_storage) throws IOException{
+    while(tokenizer.nextLine())
+      if(tokenizer.getWordCount() > 0)
+        line_storage.addLine(tokenizer.getWords());
+  }
+
 //----------------------------------------------------------------------
 /**
  * Inner classes
@@ -25,9 +25,7 @@
 
 package kwic.oo;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 
 /*
  * $Log$
@@ -82,7 +80,8 @@ public class KWIC {
 	 * sorted shifts.
 	 * 
 	 * @param file
-	 *            name of the input file
+	 *            name of the input file or directory loaded at the start, an
+	 *            empty string if nothing should be loaded
 	 * @return void
 	 * @throws IOException
 	 */
@@ -92,7 +91,7 @@ public class KWIC {
 		// initialize all variables
 
 		// storage for original lines
-		LineStorage lines = new LineStorage();
+		LineStorage lines = new ColumnarLineStorage();
 
 		// input reader
 		Input input = new Input();
@@ -102,25 +101,67 @@ public class KWIC {
 
 		// alphabetizer
 		Alphabetizer alphabetizer = new Alphabetizer();
+		alphabetizer.setKeyed(true);
 
 		// line printer
 		Output output = new Output();
 
+		// load the whole input file or directory at once if one has been
+		// specified, the shifts are made and sorted only once afterwards
+		if (file.length() > 0)
+			input.parseAll(file, lines);
+
+		// make and sort the shifts of the loaded lines, the shifts of lines
+		// added later are inserted one by one
+		shifter.setup(lines);
+		alphabetizer.alpha(shifter);
+
+		// if the data has been read from the standard input there are no
+		// commands left, print the sorted shifts
+		if (file.length() > 0 && Input.isStandardInput(file)) {
+			output.print(alphabetizer);
+			return;
+		}
+
 		// read and parse the input file
 		// store results in the line storage instance
 		try {
 			while (true) {
-				System.out.println("Add, Print, Quit: ");
-				BufferedReader stdin = new BufferedReader(
-						new InputStreamReader(System.in));
-				switch (Character.toLowerCase(stdin.readLine().charAt(0))) {
+				System.out.println("Add, Load, Print, Quit: ");
+				// the commands are read by the input, which reads the data
+				// of the standard input too
+				// the end of the standard input quits the program
+				String command = input.readLine();
+				if (command == null)
+					return;
+				if (command.length() == 0)
+					continue;
+				switch (Character.toLowerCase(command.charAt(0))) {
 				case 'a':
 					System.out.println("Add, Print, Quit: ");
+					int line_count = lines.getLineCount();
 					input.parse(file, lines);
-					// make all circular shifts of the original set of lines
+					// make the circular shifts of the new lines only
+					for (int i = line_count; i < lines.getLineCount(); i++)
+						shifter.addLine(i);
+					// insert the new shifts into the sorted shifts
+					alphabetizer.update();
+					break;
+				case 'l':
+					// load a whole file, directory or the rest of the standard
+					// input, and make and sort all shifts once
+					String path = input.readLine();
+					if (path == null)
+						return;
+					input.parseAll(path, lines);
 					shifter.setup(lines);
-					// sort all shifts alphabetically
 					alphabetizer.alpha(shifter);
+					// the standard input is at its end, print the sorted
+					// shifts
+					if (Input.isStandardInput(path)) {
+						output.print(alphabetizer);
+						return;
+					}
 					break;
 				case 'p':
 					// print sorted shifts
@@ -139,12 +180,13 @@ public class KWIC {
 
 	// ----------------------------------------------------------------------
 	/**
-	 * Main function checks the command line arguments. The program expects
-	 * exactly one command line argument specifying the name of the file that
-	 * contains the data. If the program has not been started with proper
-	 * command line arguments, main function exits with an error message.
-	 * Otherwise, a KWIC instance is created and program control is passed to
-	 * it.
+	 * Main function checks the command line arguments. The program accepts
+	 * at most one command line argument specifying the name of the file or
+	 * directory that contains the data, or "-" for the standard input. The
+	 * data is loaded before the first command is read. If the program has
+	 * been started with more arguments, main function exits with an error
+	 * message. Otherwise, a KWIC instance is created and program control is
+	 * passed to it.
 	 * 
 	 * @param args
 	 *            command line arguments
@@ -152,14 +194,13 @@ public class KWIC {
 	 */
 
 	public static void main(String[] args) {
-		// if(args.length != 1){
-		// System.err.println("KWIC Usage: java kwic.ms.KWIC file_name");
-		// System.exit(1);
-		// }
+		if (args.length > 1) {
+			System.err.println("KWIC Usage: java kwic.oo.KWIC [file_name]");
+			System.exit(1);
+		}
 
 		KWIC kwic = new KWIC();
-		// kwic.execute(args[0]);
-		kwic.execute("");
+		kwic.execute(args.length == 1 ? args[0] : "");
 	}
 
 	// ----------------------------------------------------------------------
@@ -30,13 +30,32 @@ package kwic.pf;
 */
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.io.CharArrayWriter;
+import java.util.List;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  *  Alphabetizer filter sorts lines that are passed to it. Alphabetizer reads
  *  lines from its input pipe. The sorted lines are written to the output pipe.
+ *  Lines are passed as line records and compared without copying their characters.
+ *  <p>
+ *  By default all lines are sorted in memory. In the external sort mode the
+ *  Alphabetizer keeps only a limited amount of lines in memory. Whenever the limit
+ *  is reached the buffered lines (a run) are sorted and written to a temporary file.
+ *  When all lines have been read the sorted runs are merged: the smallest
+ *  line among the first lines of all runs is written to the output pipe, and
+ *  replaced by the next line from its run. Thus, the first sorted line is written
+ *  as soon as the input is consumed, and only one line per run is kept in memory
+ *  during the merge. At most MERGE_FAN_IN runs are merged at once, thus the number
+ *  of open files is limited. If there are more runs, the oldest runs are merged
+ *  into longer runs first.
  *  @author  dhelic
  *  @version $Id$
 */
@@ -50,6 +69,42 @@ public class Alphabetizer extends Filter{
  */
 //----------------------------------------------------------------------
 
+/**
+ * Estimated memory overhead of a line record in bytes
+ *
+ */
+
+  private static final int LINE_OVERHEAD = 64;
+
+/**
+ * Size of the I/O buffers for run files and of the character buffers
+ * for lines read back from run files
+ *
+ */
+
+  private static final int BUFFER_SIZE = 65536;
+
+/**
+ * Maximal number of runs merged at once
+ *
+ */
+
+  public static final int MERGE_FAN_IN = 64;
+
+/**
+ * Memory limit for a run in bytes, 0 if all lines are sorted in memory
+ *
+ */
+
+  private long memory_ = 0;
+
+/**
+ * Directory for the run files, null for the default temporary directory
+ *
+ */
+
+  private File temp_dir_;
+
 //----------------------------------------------------------------------
 /**
  * Constructors
@@ -68,6 +123,23 @@ public class Alphabetizer extends Filter{
     super(input, output);
   }
 
+//----------------------------------------------------------------------
+/**
+ * Creates an Alphabetizer in the external sort mode.
+ * @param input input pipe
+ * @param output output pipe
+ * @param memory estimated memory in bytes for the lines of a run, 0 to sort
+ * all lines in memory
+ * @param temp_dir directory for the run files, null for the default
+ * temporary directory
+ */
+
+  public Alphabetizer(Pipe input, Pipe output, long memory, File temp_dir){
+    super(input, output);
+    memory_ = memory;
+    temp_dir_ = temp_dir;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Methods
@@ -81,48 +153,224 @@ public class Alphabetizer extends Filter{
  * @return void
  */
 
-  protected void transform(){
+  protected void transform() throws IOException{
+
+        // keeps the files of the sorted runs
+    ArrayList<File> runs = new ArrayList<File>();
     try{
 
-          // kepps all lines
-      ArrayList lines = new ArrayList();
-      
-          // keeps the characters from a line
-      CharArrayWriter writer = new CharArrayWriter();
+          // kepps all lines of the current run
+      ArrayList<Line> lines = new ArrayList<Line>();
+
+          // estimated memory used by the current run
+      long used = 0;
       
-      int c = input_.read();
-      while(c != -1){
-        writer.write(c);
-
-            // add line
-        if(((char) c) == '\n'){          
-          String line = writer.toString();
-          lines.add(line);
-          writer.reset();
-//          System.out.println("Alpha line : " + line);
-        }        
-
-        c = input_.read();
+      Line line = input_.readLine();
+      while(line != null){
+        lines.add(line);
+        if(memory_ > 0){
+          used += 2 * line.getLength() + LINE_OVERHEAD;
+          if(used >= memory_){
+            sort(lines);
+            runs.add(spill(lines));
+            lines.clear();
+            used = 0;
+          }
+        }
+        line = input_.readLine();
       }
 
       sort(lines);
       
-          //write sorted lines to the output pipe
-      Iterator iterator = lines.iterator();
-      while(iterator.hasNext()){
-        char[] chars = ((String) iterator.next()).toCharArray();
-        for(int i = 0; i < chars.length; i++)
-          output_.write(chars[i]);
-      }
+          // write sorted lines to the output pipe, merge them with
+          // the runs on the disk if there are any
+      if(runs.isEmpty()){
+        for(int i = 0; i < lines.size(); i++)
+          output_.writeLine(lines.get(i));
+      }else
+        merge(runs, lines);
 
           // close the pipe
       output_.closeWriter();
-    }catch(IOException exc){
-      exc.printStackTrace();
-      System.err.println("KWIC Error: Could not sort circular shifts.");
-      System.exit(1);
+    }finally{
+      for(int i = 0; i < runs.size(); i++)
+        runs.get(i).delete();
+    }
+
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes sorted lines to a new run file.
+ * @param lines sorted lines
+ * @exception IOException thrown if the run file cannot be written
+ * @return File
+ */
+
+  private File spill(ArrayList<Line> lines) throws IOException{
+    RunWriter writer = new RunWriter(temp_dir_);
+    try{
+      for(int i = 0; i < lines.size(); i++)
+        writer.writeLine(lines.get(i));
+    }finally{
+      writer.close();
+    }
+    return writer.file_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Merges the sorted runs and the sorted lines kept in memory and writes
+ * the result to the output pipe. If there are too many runs to merge them
+ * at once, groups of MERGE_FAN_IN runs are merged into new runs first.
+ * The new runs are added to the list of runs, thus they are deleted with
+ * the other runs.
+ * @param runs run files
+ * @param lines sorted lines of the last run
+ * @exception IOException thrown if a run cannot be read or written
+ * @return void
+ */
+
+  private void merge(ArrayList<File> runs, ArrayList<Line> lines) throws IOException{
+
+        // the lines in memory are one more run of the last merge
+    int first = 0;
+    while(runs.size() - first >= MERGE_FAN_IN){
+      RunWriter writer = new RunWriter(temp_dir_);
+      runs.add(writer.file_);
+      try{
+        merge(runs.subList(first, first + MERGE_FAN_IN), null, writer);
+      }finally{
+        writer.close();
+      }
+
+          // the merged runs are not needed any more
+      for(int i = first; i < first + MERGE_FAN_IN; i++)
+        runs.get(i).delete();
+      first += MERGE_FAN_IN;
     }
+    merge(runs.subList(first, runs.size()), lines, output_);
+  }
 
+//----------------------------------------------------------------------
+/**
+ * Merges sorted runs and writes the result to a line sink.
+ * @param runs run files
+ * @param lines sorted lines of a run in memory, or null
+ * @param sink receives the merged lines
+ * @exception IOException thrown if a run cannot be read
+ * @return void
+ */
+
+  private void merge(List<File> runs, ArrayList<Line> lines, LineSink sink) throws IOException{
+
+        // the heap of runs, ordered by their current lines; the run with
+        // the smallest current line is the root
+    Run[] heap = new Run[runs.size() + 1];
+    int size = 0;
+    try{
+      for(int i = 0; i < runs.size(); i++){
+        Run run = new Run(runs.get(i));
+        if(run.next())
+          heap[size++] = run;
+        else
+          run.close();
+      }
+      if(lines != null){
+        Run memory_run = new Run(lines);
+        if(memory_run.next())
+          heap[size++] = memory_run;
+      }
+
+          // create heap
+      for(int i = (size / 2 - 1); i >= 0; i--)
+        siftDown(heap, i, size);
+
+      while(size > 0){
+        sink.writeLine(heap[0].current_);
+
+            // replace the smallest line with the next line of its run
+        if(!heap[0].next()){
+          heap[0].close();
+          heap[0] = heap[--size];
+          heap[size] = null;
+        }
+        siftDown(heap, 0, size);
+      }
+    }finally{
+      for(int i = 0; i < size; i++)
+        heap[i].close();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Reconstructs the heap of runs for the merge. The run with the smallest
+ * current line moves to the root.
+ * @param heap runs
+ * @param int root, int bottom
+ * @return void
+ */
+
+  private void siftDown(Run[] heap, int root, int bottom){    
+    int min_child = root * 2 + 1;
+
+    while(min_child < bottom){
+      if((min_child + 1) < bottom)
+        if(heap[min_child + 1].current_.compareTo(heap[min_child].current_) < 0)
+          min_child++;
+
+      if(heap[root].current_.compareTo(heap[min_child].current_) > 0){
+        Run tmp = heap[root];
+        heap[root] = heap[min_child];
+        heap[min_child] = tmp;
+        root = min_child;
+        min_child = root * 2 + 1;
+      }else
+        break;
+    }    
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes a non-negative number as a variable length integer: seven bits
+ * per byte, the highest bit is set if more bytes follow.
+ * @param out output stream
+ * @param number number to write
+ * @exception IOException thrown if the number cannot be written
+ * @return void
+ */
+
+  private static void writeNumber(OutputStream out, int number) throws IOException{
+    while(number >= 0x80){
+      out.write(0x80 | (number & 0x7f));
+      number >>>= 7;
+    }
+    out.write(number);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Reads a variable length integer.
+ * @param in input stream
+ * @exception IOException thrown if the number cannot be read
+ * @return int the number, or -1 at the end of the stream
+ */
+
+  private static int readNumber(InputStream in) throws IOException{
+    int number = 0;
+    int shift = 0;
+    int b = in.read();
+    if(b == -1)
+      return -1;
+    while(b >= 0x80){
+      number |= (b & 0x7f) << shift;
+      shift += 7;
+      b = in.read();
+      if(b == -1)
+        throw new EOFException("Truncated run file");
+    }
+    return number | (b << shift);
   }
 
 //----------------------------------------------------------------------
@@ -131,7 +379,7 @@ public class Alphabetizer extends Filter{
  * @return void
  */
 
-  private void sort(ArrayList lines){
+  private void sort(ArrayList<Line> lines){
 
         // heap sort algorithm
         // heap is a complete tree where the value of a node
@@ -155,7 +403,7 @@ public class Alphabetizer extends Filter{
     for(int i = (size - 1); i >= 1; i--){
       
           // remove the root
-      Object tmp = lines.get(0);
+      Line tmp = lines.get(0);
       lines.set(0, lines.get(i));
       lines.set(i, tmp);
       
@@ -172,16 +420,16 @@ public class Alphabetizer extends Filter{
  * @return void
  */
 
-  private void siftDown(ArrayList lines, int root, int bottom){    
+  private void siftDown(ArrayList<Line> lines, int root, int bottom){    
     int max_child = root * 2 + 1;
 
     while(max_child < bottom){
       if((max_child + 1) < bottom)
-        if(((String) lines.get(max_child + 1)).compareTo((String) lines.get(max_child)) > 0)
+        if(lines.get(max_child + 1).compareTo(lines.get(max_child)) > 0)
           max_child++;
 
-      if(((String) lines.get(root)).compareTo((String) lines.get(max_child)) < 0){
-        Object tmp = lines.get(root);
+      if(lines.get(root).compareTo(lines.get(max_child)) < 0){
+        Line tmp = lines.get(root);
         lines.set(root, lines.get(max_child));
         lines.set(max_child, tmp);
         root = max_child;
@@ -198,4 +446,230 @@ public class Alphabetizer extends Filter{
  */
 //----------------------------------------------------------------------
 
+//----------------------------------------------------------------------
+/**
+ * A sorted run which is merged with other runs. The lines of a run
+ * are read either from a run file, or from a sorted list in memory.
+ *
+ */
+
+  private static class Run{
+
+/**
+ * Current line of the run
+ *
+ */
+
+    private Line current_;
+
+/**
+ * Run file stream, null for a run in memory
+ *
+ */
+
+    private InputStream in_;
+
+/**
+ * Lines of a run in memory
+ *
+ */
+
+    private ArrayList<Line> lines_;
+
+/**
+ * Index of the next line of a run in memory
+ *
+ */
+
+    private int index_ = 0;
+
+/**
+ * Character buffer for the lines read from the file
+ *
+ */
+
+    private char[] chars_ = new char[BUFFER_SIZE];
+
+/**
+ * Count of used characters in the buffer
+ *
+ */
+
+    private int char_count_ = 0;
+
+//----------------------------------------------------------------------
+/**
+ * @param file run file
+ * @exception IOException thrown if the file cannot be opened
+ */
+
+    private Run(File file) throws IOException{
+      in_ = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+    }
+
+//----------------------------------------------------------------------
+/**
+ * @param lines sorted lines
+ */
+
+    private Run(ArrayList<Line> lines){
+      lines_ = lines;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Moves to the next line of the run.
+ * @exception IOException thrown if the run file cannot be read
+ * @return boolean false if there are no more lines
+ */
+
+    private boolean next() throws IOException{
+      if(lines_ != null){
+        current_ = (index_ < lines_.size()) ? lines_.get(index_++) : null;
+        return current_ != null;
+      }
+
+      current_ = null;
+      int id = readNumber(in_);
+      if(id == -1)
+        return false;
+      int[] words = new int[readNumber(in_)];
+      for(int i = 0; i < words.length; i++){
+        int length = readNumber(in_);
+
+            // start a new buffer if the word does not fit, the words
+            // read so far are moved to the new buffer
+        if(char_count_ + length + 1 > chars_.length){
+          int line_start = (i > 0) ? words[0] : char_count_;
+          char[] chars = new char[Math.max(BUFFER_SIZE, 2 * (char_count_ - line_start + length + 1))];
+          System.arraycopy(chars_, line_start, chars, 0, char_count_ - line_start);
+          for(int j = 0; j < i; j++)
+            words[j] -= line_start;
+          char_count_ -= line_start;
+          chars_ = chars;
+        }
+
+        if(i > 0)
+          chars_[char_count_++] = ' ';
+        words[i] = char_count_;
+        for(int j = 0; j < length; j++){
+          int c = in_.read();
+          if(c >= 0xe0)
+            c = ((c & 0x0f) << 12) | ((in_.read() & 0x3f) << 6) | (in_.read() & 0x3f);
+          else if(c >= 0xc0)
+            c = ((c & 0x1f) << 6) | (in_.read() & 0x3f);
+          else if(c == -1)
+            throw new EOFException("Truncated run file");
+          chars_[char_count_++] = (char) c;
+        }
+      }
+      current_ = new Line(chars_, words, char_count_, id);
+      return true;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Closes the run file
+ * @exception IOException thrown if the run file cannot be closed
+ * @return void
+ */
+
+    private void close() throws IOException{
+      if(in_ != null)
+        in_.close();
+      in_ = null;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes sorted lines to a new run file. Each line is stored as its
+ * number, the number of its words, and the length and characters of each word.
+ * Numbers are stored as variable length integers and characters in the UTF-8
+ * encoding, thus a typical word character takes a single byte.
+ *
+ */
+
+  private static class RunWriter implements LineSink{
+
+/**
+ * Run file
+ *
+ */
+
+    private File file_;
+
+/**
+ * Run file stream
+ *
+ */
+
+    private OutputStream out_;
+
+/**
+ * Buffer for the characters of a word
+ *
+ */
+
+    private char[] word_ = new char[64];
+
+//----------------------------------------------------------------------
+/**
+ * Creates a new run file
+ * @param temp_dir directory for the run file, null for the default
+ * temporary directory
+ * @exception IOException thrown if the run file cannot be created
+ */
+
+    private RunWriter(File temp_dir) throws IOException{
+      file_ = File.createTempFile("kwic", ".run", temp_dir);
+      file_.deleteOnExit();
+      out_ = new BufferedOutputStream(new FileOutputStream(file_), BUFFER_SIZE);
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Writes a line to the run file
+ * @param line line record
+ * @exception IOException thrown if the run file cannot be written
+ * @return void
+ */
+
+    public void writeLine(Line line) throws IOException{
+      writeNumber(out_, line.getId());
+      writeNumber(out_, line.getWordCount());
+      for(int j = 0; j < line.getWordCount(); j++){
+        int length = line.getWordEnd(j) - line.getWordStart(j);
+        if(length > word_.length)
+          word_ = new char[length * 2];
+        line.getWord(j, word_, 0);
+        writeNumber(out_, length);
+        for(int k = 0; k < length; k++){
+          char c = word_[k];
+          if(c < 0x80)
+            out_.write(c);
+          else if(c < 0x800){
+            out_.write(0xc0 | (c >> 6));
+            out_.write(0x80 | (c & 0x3f));
+          }else{
+            out_.write(0xe0 | (c >> 12));
+            out_.write(0x80 | ((c >> 6) & 0x3f));
+            out_.write(0x80 | (c & 0x3f));
+          }
+        }
+      }
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Closes the run file
+ * @exception IOException thrown if the run file cannot be closed
+ * @return void
+ */
+
+    private void close() throws IOException{
+      out_.close();
+    }
+  }
+
 }
@@ -30,19 +30,19 @@ package kwic.pf;
 */
 
 import java.io.IOException;
-import java.io.CharArrayWriter;
-import java.util.StringTokenizer;
 
 /**
  *  CircularShifter filter produces circular shifts of a set 
  *  of lines passed to it. The set of lines is read from the input pipe of this
- *  filter. The produced shifts are written out to the output pipe
- *  of this filter.
+ *  filter, and each line is shifted on its own (see LineFilter class). The produced shifts are written out to the output pipe
+ *  of this filter. Both lines and shifts are passed as line records. A shift shares
+ *  the characters of its line and refers to the word it starts with, thus no shift
+ *  is composed as text.
  *  @author  dhelic
  *  @version $Id$
 */
 
-public class CircularShifter extends Filter{
+public class CircularShifter extends LineFilter{
 
 //----------------------------------------------------------------------
 /**
@@ -51,6 +51,27 @@ public class CircularShifter extends Filter{
  */
 //----------------------------------------------------------------------
 
+/**
+ * Size of the character buffers for capitalized lines
+ *
+ */
+
+  public static final int BUFFER_SIZE = 65536;
+
+/**
+ * Character buffer for capitalized lines
+ *
+ */
+
+  private char[] chars_;
+
+/**
+ * Count of used characters in the buffer
+ *
+ */
+
+  private int char_count_ = 0;
+
 //----------------------------------------------------------------------
 /**
  * Constructors
@@ -78,66 +99,38 @@ public class CircularShifter extends Filter{
 
 //----------------------------------------------------------------------
 /**
- * Produces all circular shifts of lines in a given set, read from the input pipe.
+ * Produces all circular shifts of a line.
+ * @param line line record
+ * @param output output of the shifts
  * @return void
  */
 
-  protected void transform(){
-    try{
-      
-          // keeps the characters
-      CharArrayWriter writer = new CharArrayWriter();
-      
-      int c = input_.read();
-      while(c != -1){
-        
-            // line has been read
-        if(((char) c) == '\n'){
-          
-              // current line
-          String line = writer.toString();
-          
-              // convert the current line in array of words
-          StringTokenizer tokenizer = new StringTokenizer(line);
-          String[] words = new String[tokenizer.countTokens()];
-          int i = 0;
-          while(tokenizer.hasMoreTokens())
-            words[i++] = tokenizer.nextToken();
-          
-              // iterate through all words of the current line
-          for(i = 0; i < words.length; i++){
-            
-                // make a new shift
-            String shift = "";
-            for(int j = i; j < (words.length + i); j++){
-              shift += words[j % words.length];
-              if(j < (words.length + i - 1))
-                shift += " ";
-            }
-            shift += '\n';
-//            System.out.println("Circular shift : " + shift);
-                // convert the shift into char array and write it to the output
-            char[] chars = shift.toCharArray();
-            for(int j = 0; j < chars.length; j++)
-              output_.write(chars[j]);
-          }     
-          
-              // reset the character buffer
-          writer.reset();
-        }else
-          writer.write(c);
-        
-        c = input_.read();
+  protected void processLine(Line line, LineSink output) throws IOException{
+    int word_count = line.getWordCount();
+
+        // a capitalized line renders its first word in upper case, whereas
+        // its shifts render their own first words in upper case. Thus, we
+        // copy the line with the capitalized word once and shift the copy
+    if(line.isCapitalized()){
+      int length = line.getLength();
+      if(chars_ == null || char_count_ + length > chars_.length){
+        chars_ = new char[Math.max(BUFFER_SIZE, length)];
+        char_count_ = 0;
       }
-
-          // close the pipe
-      output_.closeWriter();
-    }catch(IOException exc){
-      exc.printStackTrace();
-      System.err.println("KWIC Error: Could not make circular shifts.");
-      System.exit(1);
+      int[] words = new int[word_count];
+      for(int i = 0; i < word_count; i++){
+        if(i > 0)
+          chars_[char_count_++] = ' ';
+        words[i] = char_count_;
+        char_count_ += line.getWord(i, chars_, char_count_);
+      }
+      line = new Line(chars_, words, char_count_, line.getId());
     }
-
+        
+        // iterate through all words of the current line
+        // and make a new shift for each of them
+    for(int i = 0; i < word_count; i++)
+      output.writeLine(new Line(line, i));
   }
 
 //----------------------------------------------------------------------
@@ -29,13 +29,18 @@ package kwic.pf;
  * $Log$
 */
 
+import java.io.IOException;
+
 /**
  *  Filter is a component that has two pipes: an input and an output pipe.
  *  A filter object reads data from the input pipe, transform it and writes the transformed
  *  data to the output pipe. We may connect filters in sequences by declaring an output
  *  pipe of the first filter to be the input pipe of the second filter. Thus, in that way
  *  the transformed data of the first filter becomes the input data of the second filter.
- *  Each filter runs in its own thread.
+ *  Filters that work on lines exchange line records through their pipes (see Line class)
+ *  instead of characters, thus lines are parsed only once by the first filter.
+ *  Each filter runs in its own thread, either started by the filter itself or
+ *  by a PipelineExecutor.
  *  @author  dhelic
  *  @version $Id$
 */
@@ -121,12 +126,60 @@ abstract public class Filter implements Runnable{
 
 //----------------------------------------------------------------------
 /**
- * Thread run method
+ * Thread run method. If the filter fails, an error message is shown.
  * @return void
  */
 
   public void run(){
-    transform();
+    try{
+      execute();
+    }catch(Pipe.BrokenPipeException exc){
+
+          // the previous filter has failed and reported its failure
+    }catch(IOException exc){
+      exc.printStackTrace();
+      System.err.println("KWIC Error: Broken pipe");
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Transforms the data in the calling thread. If the transformation fails,
+ * both pipes of the filter are closed before the exception is passed on:
+ * the following filter gets the failure instead of the end of its input and
+ * fails as well, and the previous filter fails when it writes to the closed
+ * pipe. Thus, the failure of one filter stops the whole pipeline, no filter
+ * waits forever on a pipe, and no filter finishes with incomplete data.
+ * @return void
+ * @exception IOException if the transformation fails
+ */
+
+  public void execute() throws IOException{
+    try{
+      transform();
+    }catch(Throwable exc){
+
+          // pass on the original failure if the previous filter has failed
+      abort((exc instanceof Pipe.BrokenPipeException) ? exc.getCause() : exc);
+      throw exc;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Closes the pipes of a failed filter, or of a filter that could not be started
+ * @param cause failure of the filter
+ * @return void
+ */
+
+  void abort(Throwable cause){
+    try{
+      if(input_ != null)
+        input_.closeReader();
+    }catch(IOException exc){
+    }
+    if(output_ != null)
+      output_.failWriter(cause);
   }
 
 //----------------------------------------------------------------------
@@ -134,9 +187,10 @@ abstract public class Filter implements Runnable{
  * This method transforms the data from the input pipe and writes the
  * transformed data into output pipe.
  * @return void
+ * @exception IOException if the data can not be read or written
  */
 
-  abstract protected void transform();
+  abstract protected void transform() throws IOException;
 
 //----------------------------------------------------------------------
 /**
@@ -0,0 +1,219 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    FusedFilter.java
+ *
+ *  Purpose: Chain of line filters run as a single filter
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Chain of line filters run as a single filter
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ *  A fused filter runs a chain of connected line filters, optionally started by
+ *  an Input filter, as a single filter in one thread. Each line is passed from one
+ *  filter of the chain to the next one by a direct method call instead of a pipe, thus
+ *  the chain needs neither a thread nor a pipe per filter, and no line waits in
+ *  a pipe. The pipes between the fused filters are not used. 
+ *  <p>
+ *  The fuse method finds all such chains in a pipeline and replaces them with fused
+ *  filters. Filters that need all lines before they can write any (e.g. Alphabetizer)
+ *  are not line filters and stay separate.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class FusedFilter extends Filter{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Input filter that starts the chain, or null if the chain reads
+ * its input pipe
+ *
+ */
+
+  private Input source_;
+
+/**
+ * Fused line filters
+ *
+ */
+
+  private LineFilter[] filters_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Creates a filter that reads the input pipe of the first line filter
+ * and writes to the output pipe of the last line filter.
+ * @param filters connected line filters
+ */
+
+  public FusedFilter(LineFilter[] filters){
+    this(null, filters);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a filter that reads lines by the specified input filter
+ * and writes to the output pipe of the last line filter.
+ * @param source input filter, or null
+ * @param filters connected line filters
+ */
+
+  public FusedFilter(Input source, LineFilter[] filters){
+    super((source != null) ? null : filters[0].input_, 
+          filters[filters.length - 1].output_);
+    source_ = source;
+    filters_ = filters;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Replaces all chains of at least two connected line filters, including an
+ * Input filter in front of the chain, with fused filters.
+ * @param filters filters of a pipeline in the order of their connection
+ * @return Filter[] the filters of the same pipeline with fused chains
+ */
+
+  public static Filter[] fuse(Filter[] filters){
+    ArrayList<Filter> fused = new ArrayList<Filter>();
+    int i = 0;
+    while(i < filters.length){
+
+          // find the longest chain of connected line filters
+      Input source = null;
+      int first = i;
+      if(filters[i] instanceof Input){
+        source = (Input) filters[i];
+        first++;
+      }
+      int end = first;
+      while(end < filters.length && filters[end] instanceof LineFilter &&
+            (end == i || filters[end].input_ == filters[end - 1].output_))
+        end++;
+
+      if(end - i < 2){
+        fused.add(filters[i]);
+        i++;
+      }else{
+        LineFilter[] chain = new LineFilter[end - first];
+        for(int j = first; j < end; j++)
+          chain[j - first] = (LineFilter) filters[j];
+        fused.add(new FusedFilter(source, chain));
+        i = end;
+      }
+    }
+    return fused.toArray(new Filter[fused.size()]);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Passes each line through all fused filters.
+ * @return void
+ */
+
+  protected void transform() throws IOException{
+    for(int i = 0; i < filters_.length; i++)
+      filters_[i].open();
+
+        // each filter writes to a sink that calls the next filter,
+        // the last filter writes to the output pipe
+    LineSink first = output_;
+    for(int i = filters_.length - 1; i >= 0; i--)
+      first = new Stage(filters_[i], first);
+
+    if(source_ != null)
+      source_.readLines(first);
+    else{
+      Line line = input_.readLine();
+      while(line != null){
+        first.writeLine(line);
+        line = input_.readLine();
+      }
+    }
+    output_.closeWriter();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * A stage passes the lines it receives to a line filter, which writes
+ * its results to the next stage.
+ */
+
+  private static class Stage implements LineSink{
+
+/**
+ * Line filter of this stage
+ *
+ */
+
+    private LineFilter filter_;
+
+/**
+ * Next stage
+ *
+ */
+
+    private LineSink next_;
+
+    private Stage(LineFilter filter, LineSink next){
+      filter_ = filter;
+      next_ = next;
+    }
+
+    public void writeLine(Line line) throws IOException{
+      filter_.processLine(line, next_);
+    }
+  }
+
+}
@@ -31,22 +31,28 @@ package kwic.pf;
 
 import java.io.IOException;
 import java.io.InputStream;
+import kwic.util.Tokenizer;
 
 /**
  *  Input module is a filter that is responsible for reading and parsing the content of 
  *  a KWIC input file. The format of the KWIC input file is as follows:
  *  <ul>
+ *  <li>The file is encoded in UTF-8
  *  <li>Lines are separated by the line separator character(s) (on Unix '\n', on Windows '\r\n')
  *  <li>Each line consists of a number of words. Words are delimited by any number and combination
- *  of the space chracter (' ') and the horizontal tabulation chracter ('\t').
+ *  of white space characters, e.g. the space chracter (' ') and the horizontal tabulation
+ *  chracter ('\t').
  *  </ul>
  *  The data is parsed in the following way:
  *  <ul>
  *  <li>All multiple line separators are replaced with a single line separator ('\n')
  *  <li>All mulitple word delimiters are replaced with a single word delimiter (' ')
  *  </ul>
- *  The parsed data is written to the outpup pipe of this filter, for further processing
- *  by the next filter in the pipeline: CircularShifter filter.
+ *  Each parsed line is written to the output pipe of this filter as a line record
+ *  (see Line class), for further processing by the next filter in the pipeline.
+ *  The data is decoded and split by a tokenizer (see kwic.util.Tokenizer), which stores
+ *  the characters of the lines in large character buffers shared by many lines, so that
+ *  the next filters do not need to parse the data again.
  *  @author  dhelic
  *  @version $Id$
 */
@@ -60,6 +66,13 @@ public class Input extends Filter{
  */
 //----------------------------------------------------------------------
 
+/**
+ * Size of the shared character buffers
+ *
+ */
+
+  public static final int BUFFER_SIZE = 65536;
+
 /**
  * File stream of the KWIC input file
  *
@@ -96,60 +109,37 @@ public class Input extends Filter{
 //----------------------------------------------------------------------
 /**
  * This method reads and parses a KWIC input file. If an I/O exception occurs
- * during the execution of this method, an error message is shown and program
- * exits. The parsed data is written to the output pipe.
+ * during the execution of this method, it is passed on to the caller.
+ * The parsed lines are written to the output pipe.
  * @return void
  */
 
-  protected void transform(){
-    try{
-      boolean is_new_line = false;      
-      boolean is_new_word = false;
-      boolean is_line_started = false;
-      
-      int c = in_.read();
-      while(c != -1){
-//    	  System.out.println("char read :" + (char)c);
-        switch((byte) c){
-        case '\n':          
-          is_new_line = true;
-          break;
-        case ' ':
-          is_new_word = true;
-          break;
-        case '\t':
-          is_new_word = true;
-          break;
-        case '\r':
-          break;
-        default:
-          if(is_new_line){
-            output_.write('\n');
-            is_new_line = false;
-            is_line_started = false;
-          }
-          if(is_new_word){
-            if(is_line_started)
-              output_.write(' ');
-            is_new_word = false;
-          }
-          output_.write(c);
-          is_line_started = true;
-          break;
-        }        
-        c = in_.read();
-      }
-      
-          // terminate the last line
-      output_.write('\n');
-      
-          // close the pipe
-      output_.closeWriter();
-    }catch(IOException exc){
-      exc.printStackTrace();
-      System.err.println("KWIC Error: Could not read the input file.");
-      System.exit(1);
-    }
+  protected void transform() throws IOException{
+    readLines(output_);
+
+        // close the pipe
+    output_.closeWriter();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Reads and parses a KWIC input file, and writes the parsed lines to the
+ * specified sink.
+ * @param output sink of the parsed lines
+ * @return void
+ * @exception IOException if the file can not be read
+ */
+
+  public void readLines(LineSink output) throws IOException{
+    Tokenizer tokenizer = new Tokenizer(in_, BUFFER_SIZE);
+
+        // number of the current line
+    int line_count = 0;
+
+    while(tokenizer.nextLine())
+      if(tokenizer.getWordCount() > 0)
+        output.writeLine(new Line(tokenizer.getChars(), tokenizer.getWordStarts(), 
+                                  tokenizer.getLineEnd(), line_count++));
   }
 
 //----------------------------------------------------------------------
@@ -29,28 +29,47 @@ package kwic.pf;
  * $Log$
 */
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import kwic.util.OutputSink;
 
 /**
- *  An object of the KWIC class creates the linear sequence (pipeline) of filters
- *  connected with pipes. To achieve the desired functionality of the KWIC index system
- *  the following pipeline is created:
+ *  An object of the KWIC class builds the pipeline of filters connected with pipes
+ *  with a PipelineBuilder and runs it with a PipelineExecutor. To achieve the desired
+ *  functionality of the KWIC index system the following pipeline is built:
  *  <ul>
- *  <li>The first filter is the Input filter. It reads the data from the file, parses it
- *  and outputs it to the in_cs pipe.
- *  <li>The in_cs pipe is the input pipe for the next filter in the pipeline: CircularShifter
- *  filter. CircularShifter reads the data from the in_cs pipe, process it by making circular shifts
- *  of lines in that pipe. The output is written to the cs_al pipe.
- *  <li>The cs_al pipe is the input pipe for the next filter in the pipeline: Alphabetizer
- *  filter. Alphabetizer reads the data from the cs_al pipe, process it by sorting circular shifts
- *  from that pipe. The output is written to the al_ou pipe.
- *  <li>The al_ou pipe is the input pipe for the next filter in the pipeline: Output
- *  filter. Output reads the data from the al_ou pipe and writes it to the standard output.
+ *  <li>The Input filter reads the data from the file and parses it into line records.
+ *  <li>The LineTransformer filter renders the first word of each line in upper case.
+ *  <li>The CircularShifter filter makes the circular shifts of the lines.
+ *  <li>The ShiftFilter filter removes the shifts that start with a noise word.
+ *  <li>The Alphabetizer filter sorts the shifts. With the -threads option the shifts
+ *  are sorted by a ParallelAlphabetizer filter instead. With the -memory option the
+ *  Alphabetizer sorts runs of the specified size and merges them on the disk, in the
+ *  directory of the -tmpdir option.
+ *  <li>The LineTransformer filter renders the first word of each sorted shift in
+ *  upper case.
+ *  <li>The Output filter writes the index to the standard output, or to the file of
+ *  the -output option.
  *  </ul>
  *  Thus, the KWIC object manages the following pipe mechanism:
  *  <p>
- *  input file > Input > CircularShifter > Alphabetizer > Output > standard output
+ *  input file > Input > LineTransformer > CircularShifter > ShiftFilter >
+ *  Alphabetizer > LineTransformer > Output > standard output
+ *  <p>
+ *  With the -count option the stream of shifts is forked after the ShiftFilter filter
+ *  (see Tee class), and a WordCounter filter counts the keywords of the index on the
+ *  second branch. The counts are printed after the index. With the -fused option the
+ *  chain of filters up to the ShiftFilter runs as a single filter in one thread (see
+ *  FusedFilter class). The executor runs each filter on a thread of its pool and
+ *  completes a future when all filters have finished, or when the first of them has
+ *  failed.
  *  @author  dhelic
  *  @version $Id$
 */
@@ -64,6 +83,55 @@ public class KWIC{
  */
 //----------------------------------------------------------------------
 
+/**
+ * Fusion flag, if set chains of line filters run as single filters
+ *
+ */
+
+  private boolean fused_ = false;
+
+/**
+ * Word counting flag, if set the keywords of the index are counted as well
+ *
+ */
+
+  private boolean counting_ = false;
+
+/**
+ * Number of threads sorting the shifts
+ *
+ */
+
+  private int sort_threads_ = 1;
+
+/**
+ * Memory for a run of the external sort in bytes, 0 to sort in memory
+ *
+ */
+
+  private long sort_memory_ = 0;
+
+/**
+ * Directory for the runs of the external sort, null for the default one
+ *
+ */
+
+  private File temp_dir_;
+
+/**
+ * Name of the output file, null for the standard output
+ *
+ */
+
+  private String output_file_;
+
+/**
+ * Keyword counter of the last executed pipeline, or null
+ *
+ */
+
+  private WordCounter counter_;
+
 //----------------------------------------------------------------------
 /**
  * Constructors
@@ -78,71 +146,247 @@ public class KWIC{
  */
 //----------------------------------------------------------------------
 
+//----------------------------------------------------------------------
+/**
+ * Sets the fusion flag. If it is set the chain of Input, LineTransformer,
+ * CircularShifter and ShiftFilter runs as a single filter in one thread
+ * (see FusedFilter class).
+ * @param fused fusion flag
+ * @return void
+ */
+
+  public void setFused(boolean fused){
+    fused_ = fused;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the word counting flag. If it is set the stream of circular shifts
+ * is forked, and one branch counts how often each word is a keyword of
+ * the index (see WordCounter class), while the other branch prints the index.
+ * @param counting word counting flag
+ * @return void
+ * @see #getWordCounter
+ */
+
+  public void setWordCounting(boolean counting){
+    counting_ = counting;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the number of threads sorting the shifts. If it is greater than one
+ * the shifts are sorted by a ParallelAlphabetizer filter.
+ * @param threads number of threads
+ * @return void
+ */
+
+  public void setSortThreads(int threads){
+    sort_threads_ = threads;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the memory for a run of the external sort. If it is greater than zero
+ * and the shifts are sorted by a single thread, the Alphabetizer filter sorts
+ * runs of this size and merges them on the disk.
+ * @param memory memory for a run in bytes, 0 to sort in memory
+ * @return void
+ * @see #setTempDir
+ */
+
+  public void setSortMemory(long memory){
+    sort_memory_ = memory;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the directory for the runs of the external sort.
+ * @param temp_dir directory for the runs, null for the default one
+ * @return void
+ * @see #setSortMemory
+ */
+
+  public void setTempDir(File temp_dir){
+    temp_dir_ = temp_dir;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the name of the file the index is written to.
+ * @param file name of the output file, null for the standard output
+ * @return void
+ */
+
+  public void setOutputFile(String file){
+    output_file_ = file;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the keyword counter of the last executed pipeline. The counts are
+ * complete when the pipeline has finished.
+ * @return WordCounter counter, or null if the word counting flag is not set
+ */
+
+  public WordCounter getWordCounter(){
+    return counter_;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Parses the data, makes shifts and sorts them. At the end prints the
- * sorted shifts.
+ * sorted shifts. The filters run on a thread pool of their own, and this
+ * method waits until they have finished.
  * @param file name of the input file
+ * @param file2 name of the noise words file
  * @return void
  */
 
   public void execute(String file, String file2){
+    ExecutorService pool = Executors.newCachedThreadPool();
     try{
-      
-          // pipes
-      Pipe in_lt = new Pipe();
-      Pipe lt_cs = new Pipe();
-      Pipe cs_sf = new Pipe();
-      Pipe sf_al = new Pipe();
-      Pipe al_lt = new Pipe();
-      Pipe lt_ou = new Pipe();
-      
-          // input file
-      FileInputStream in = new FileInputStream(file);
-      FileInputStream inNoise = new FileInputStream(file2);
-          // filters connected into a pipeline
-      Input input = new Input(in, in_lt);
-      LineTransformer lt = new LineTransformer(in_lt, lt_cs);
-      CircularShifter shifter = new CircularShifter(lt_cs, cs_sf);
-      ShiftFilter sf = new ShiftFilter(cs_sf, sf_al, inNoise);
-      Alphabetizer alpha = new Alphabetizer(sf_al, al_lt);
-      LineTransformer lt2 = new LineTransformer(al_lt, lt_ou);
-      Output output = new Output(lt_ou);
-      
-      
-          // run it
-      input.start();
-      sf.start();
-      shifter.start();
-      lt.start();
-      alpha.start();
-      lt2.start();
-      output.start();
+      execute(new PipelineExecutor(pool), file, file2).get();
+      if(counter_ != null)
+        counter_.print(System.out);
     }catch(IOException exc){
       exc.printStackTrace();
+    }catch(ExecutionException exc){
+      exc.getCause().printStackTrace();
+      System.err.println("KWIC Error: Broken pipe");
+    }catch(InterruptedException exc){
+      exc.printStackTrace();
+    }finally{
+      pool.shutdown();
     }
   }
 
+//----------------------------------------------------------------------
+/**
+ * Parses the data, makes shifts and sorts them. At the end prints the
+ * sorted shifts. The filters run on the specified executor, thus many
+ * pipelines may run at the same time.
+ * @param executor executor of the pipeline
+ * @param file name of the input file
+ * @param file2 name of the noise words file
+ * @return CompletableFuture future completed when the sorted shifts have
+ * been printed, or completed with the exception of the first failed filter
+ * @exception IOException if the files can not be opened
+ */
+
+  public CompletableFuture<Void> execute(PipelineExecutor executor, String file, 
+                                         String file2) throws IOException{
+      
+        // input file
+    final FileInputStream in = new FileInputStream(file);
+    final FileInputStream inNoise;
+    final OutputSink sink;
+    try{
+      inNoise = new FileInputStream(file2);
+    }catch(IOException exc){
+      in.close();
+      throw exc;
+    }
+    try{
+      sink = (output_file_ != null) ? 
+        new OutputSink(output_file_, StandardCharsets.UTF_8, OutputSink.BUFFER_SIZE) : 
+        new OutputSink();
+    }catch(IOException exc){
+      in.close();
+      inNoise.close();
+      throw exc;
+    }
+
+        // filters connected into a pipeline
+    PipelineBuilder builder = new PipelineBuilder();
+    builder.setFused(fused_);
+    PipelineBuilder.Stream shifts = builder.read(in).capitalize().shift().removeNoise(inNoise);
+    counter_ = null;
+    if(counting_){
+      PipelineBuilder.Stream[] branches = shifts.fork(2);
+      shifts = branches[0];
+      counter_ = branches[1].countWords();
+    }
+    if(sort_threads_ > 1)
+      shifts = shifts.sortParallel(sort_threads_);
+    else
+      shifts = shifts.sort(sort_memory_, temp_dir_);
+    shifts.capitalize().print(sink);
+      
+        // run it and close the files when it has finished
+    CompletableFuture<Void> future = builder.execute(executor);
+    future.whenComplete(new BiConsumer<Void, Throwable>(){
+        public void accept(Void result, Throwable exc){
+          try{
+            in.close();
+            inNoise.close();
+            sink.close();
+          }catch(IOException close_exc){
+          }
+        }
+      });
+    return future;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Main function checks the command line arguments. The program expects 
- * exactly one command line argument specifying the name of the file 
- * that contains the data. If the program has not been started with 
- * proper command line arguments, main function exits
- * with an error message. Otherwise, a KWIC instance is created and program
- * control is passed to it.
+ * two command line arguments specifying the name of the file 
+ * that contains the data and the name of the file that contains the noise
+ * words, optionally preceded by the -fused, -count, -threads, -memory, -tmpdir
+ * and -output options. If the program has not been started with proper command
+ * line arguments, main function exits with an error message. Otherwise, a KWIC
+ * instance is created and program control is passed to it.
  * @param args command line arguments
  * @return void
  */
 
   public static void main(String[] args){
-    if(args.length != 2){
-      System.err.println("KWIC Usage: java kwic.ms.KWIC file_name");
+    KWIC kwic = new KWIC();
+    int first = 0;
+    while(first < args.length && args[first].startsWith("-")){
+      if(args[first].equals("-fused"))
+        kwic.setFused(true);
+      else if(args[first].equals("-count"))
+        kwic.setWordCounting(true);
+      else if(args[first].equals("-threads") && first + 1 < args.length){
+        int threads = 0;
+        try{
+          threads = Integer.parseInt(args[++first]);
+        }catch(NumberFormatException exc){
+        }
+        if(threads < 1){
+          System.err.println("KWIC Error: Invalid number of threads " + args[first] + ".");
+          System.exit(1);
+        }
+        kwic.setSortThreads(threads);
+      }else if(args[first].equals("-memory") && first + 1 < args.length){
+        long memory = 0;
+        try{
+          memory = Long.parseLong(args[++first]);
+        }catch(NumberFormatException exc){
+        }
+        if(memory < 1){
+          System.err.println("KWIC Error: Invalid run memory " + args[first] + ".");
+          System.exit(1);
+        }
+        kwic.setSortMemory(memory);
+      }else if(args[first].equals("-tmpdir") && first + 1 < args.length)
+        kwic.setTempDir(new File(args[++first]));
+      else if(args[first].equals("-output") && first + 1 < args.length)
+        kwic.setOutputFile(args[++first]);
+      else
+        break;
+      first++;
+    }
+    if(args.length - first != 2){
+      System.err.println("KWIC Usage: java kwic.pf.KWIC [-fused] [-count] [-threads n] " + 
+                         "[-memory bytes] [-tmpdir dir_name] [-output output_file_name] " + 
+                         "file_name noise_file_name");
       System.exit(1);
     }
 
-    KWIC kwic = new KWIC();
-    kwic.execute(args[0], args[1]);
+    kwic.execute(args[first], args[first + 1]);
   }
 
 //----------------------------------------------------------------------
@@ -0,0 +1,416 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    Line.java
+ *
+ *  Purpose: Pre-tokenized line passed between filters
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Pre-tokenized line passed between filters
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+/**
+ *  A Line object is a record that represents a tokenized line. It does not hold
+ *  its own characters, but refers to a character buffer that is shared by many lines.
+ *  The words of a line are stored in the buffer one after another and are separated
+ *  by a single space character. The line keeps the start index of each word in the
+ *  buffer and the end index of its last word. Thus, the line is tokenized only once
+ *  by the Input filter; all other filters access words by these indices and do not
+ *  need to parse characters again. The characters of a line are never changed after the
+ *  line has been written to a pipe. Instead, filters change the way a line is rendered,
+ *  e.g. a capitalized line renders its first word in upper case.
+ *  <p>
+ *  A circular shift of a line is a line object as well. It shares the character buffer
+ *  and the word indices with the original line and keeps only the index of the original
+ *  word which becomes its first word. Thus, all shifts of a line with n words take O(n)
+ *  memory, and the text of a shift is rendered only when it is needed.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class Line{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Shared character buffer
+ *
+ */
+
+  private char[] chars_;
+
+/**
+ * Start indices of the words in the character buffer
+ *
+ */
+
+  private int[] words_;
+
+/**
+ * End index (exclusive) of the last word in the character buffer
+ *
+ */
+
+  private int end_;
+
+/**
+ * Index of the original word which is the first word of this line
+ *
+ */
+
+  private int shift_ = 0;
+
+/**
+ * Number of the line in the input
+ *
+ */
+
+  private int id_;
+
+/**
+ * Capitalization flag
+ *
+ */
+
+  private boolean capitalized_ = false;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * @param chars shared character buffer
+ * @param words start indices of the words in the buffer
+ * @param end end index (exclusive) of the last word in the buffer
+ * @param id number of the line in the input
+ */
+
+  public Line(char[] chars, int[] words, int end, int id){
+    chars_ = chars;
+    words_ = words;
+    end_ = end;
+    id_ = id;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a circular shift of a line. The shift shares the characters
+ * and word indices of the line.
+ * @param line original line
+ * @param shift index of the word of the original line which becomes the first
+ * word of the shift
+ */
+
+  public Line(Line line, int shift){
+    chars_ = line.chars_;
+    words_ = line.words_;
+    end_ = line.end_;
+    id_ = line.id_;
+    shift_ = (line.shift_ + shift) % words_.length;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of the line in the input
+ * @return int
+ */
+
+  public int getId(){
+    return id_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index of the original word which is the first word of this line,
+ * 0 for an original line
+ * @return int
+ */
+
+  public int getShift(){
+    return shift_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of words in this line
+ * @return int
+ */
+
+  public int getWordCount(){
+    return words_.length;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the shared character buffer of this line
+ * @return char[]
+ * @see #getWordStart
+ * @see #getWordEnd
+ */
+
+  public char[] getChars(){
+    return chars_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index in the shared buffer where the specified word starts
+ * @param word word index in the line
+ * @return int
+ */
+
+  public int getWordStart(int word){
+    word += shift_;
+    if(word >= words_.length)
+      word -= words_.length;
+    return words_[word];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index in the shared buffer where the specified word ends (exclusive)
+ * @param word word index in the line
+ * @return int
+ */
+
+  public int getWordEnd(int word){
+    word += shift_;
+    if(word >= words_.length)
+      word -= words_.length;
+    return (word == words_.length - 1) ? end_ : words_[word + 1] - 1;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of characters of the rendered line, i.e., the number of
+ * characters of all words and of the spaces between them
+ * @return int
+ */
+
+  public int getLength(){
+
+        // the words are stored one after another, separated by
+        // a single space, the shift does not change the length
+    return end_ - words_[0];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the capitalization flag. A capitalized line renders its first
+ * word in upper case.
+ * @param capitalized capitalization flag
+ * @return void
+ * @see #isCapitalized
+ */
+
+  public void setCapitalized(boolean capitalized){
+    capitalized_ = capitalized;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the capitalization flag
+ * @return boolean
+ * @see #setCapitalized
+ */
+
+  public boolean isCapitalized(){
+    return capitalized_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the rendered character at the specified position of the specified word
+ * @param position character index in the word
+ * @param word word index in the line
+ * @return char
+ */
+
+  public char getChar(int position, int word){
+    char c = chars_[getWordStart(word) + position];
+    return (capitalized_ && word == 0) ? Character.toUpperCase(c) : c;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Copies the rendered characters of the specified word into a buffer
+ * @param word word index in the line
+ * @param dst destination buffer
+ * @param offset index in the destination buffer
+ * @return int number of copied characters
+ */
+
+  public int getWord(int word, char[] dst, int offset){
+    int start = getWordStart(word);
+    int length = getWordEnd(word) - start;
+    System.arraycopy(chars_, start, dst, offset, length);
+    if(capitalized_ && word == 0)
+      for(int i = offset; i < offset + length; i++)
+        dst[i] = Character.toUpperCase(dst[i]);
+    return length;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the rendered word from the specified position
+ * @param word word index in the line
+ * @return String
+ */
+
+  public String getWord(int word){
+    char[] tmp = new char[getWordEnd(word) - getWordStart(word)];
+    getWord(word, tmp, 0);
+    return new String(tmp);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Checks if the rendered word from the specified position equals the given string
+ * @param word word index in the line
+ * @param str string to compare with
+ * @return boolean
+ */
+
+  public boolean wordEquals(int word, String str){
+    int start = getWordStart(word);
+    int length = getWordEnd(word) - start;
+    if(length != str.length())
+      return false;
+    for(int i = 0; i < length; i++)
+      if(getChar(i, word) != str.charAt(i))
+        return false;
+    return true;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Copies the rendered line into a buffer. The buffer must hold at
+ * least getLength() characters from the offset on.
+ * @param dst destination buffer
+ * @param offset index in the destination buffer
+ * @return int number of copied characters
+ */
+
+  public int getLine(char[] dst, int offset){
+    int count = offset;
+    for(int i = 0; i < words_.length; i++){
+      if(i > 0)
+        dst[count++] = ' ';
+      count += getWord(i, dst, count);
+    }
+    return count - offset;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Compares the rendered text of this line with the rendered text of
+ * another line alphabetically, character by character. If one line is a
+ * prefix of the other the shorter line is smaller. No characters are copied.
+ * @param line line to compare with
+ * @return int negative, zero or positive if this line is smaller, equal or
+ * greater than the other line
+ */
+
+  public int compareTo(Line line){
+
+        // current word, index of its next character in the buffer and its end
+    int word = 0;
+    int position = getWordStart(0);
+    int end = getWordEnd(0);
+    int other_word = 0;
+    int other_position = line.getWordStart(0);
+    int other_end = line.getWordEnd(0);
+
+    while(true){
+
+          // the next rendered character of this line, -1 at the end
+      int c;
+      if(position < end){
+        c = chars_[position++];
+        if(capitalized_ && word == 0)
+          c = Character.toUpperCase((char) c);
+      }else if(word + 1 < words_.length){
+        c = ' ';
+        word++;
+        position = getWordStart(word);
+        end = getWordEnd(word);
+      }else
+        c = -1;
+
+          // the next rendered character of the other line, -1 at the end
+      int other_c;
+      if(other_position < other_end){
+        other_c = line.chars_[other_position++];
+        if(line.capitalized_ && other_word == 0)
+          other_c = Character.toUpperCase((char) other_c);
+      }else if(other_word + 1 < line.words_.length){
+        other_c = ' ';
+        other_word++;
+        other_position = line.getWordStart(other_word);
+        other_end = line.getWordEnd(other_word);
+      }else
+        other_c = -1;
+
+      if(c != other_c)
+        return c - other_c;
+      if(c == -1)
+        return 0;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the rendered line as a string
+ * @return String
+ */
+
+  public String toString(){
+    char[] tmp = new char[getLength()];
+    getLine(tmp, 0);
+    return new String(tmp);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
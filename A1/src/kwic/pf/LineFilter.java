@@ -0,0 +1,123 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    LineFilter.java
+ *
+ *  Purpose: Filter that processes each line on its own
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Filter that processes each line on its own
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+
+/**
+ *  A line filter processes each line record from its input pipe on its own, and writes
+ *  zero or more line records for it to its output. It keeps no lines between two calls,
+ *  so it can be run either as a filter in its own thread, or fused with neighbouring
+ *  line filters into a single loop (see FusedFilter class), where the lines are passed
+ *  from one filter to the next one by reference.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+abstract public class LineFilter extends Filter{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * @param input Input pipe
+ * @param output Output pipe
+ */
+
+  public LineFilter(Pipe input, Pipe output){
+    super(input, output);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Processes all lines from the input pipe and writes the results to the
+ * output pipe.
+ * @return void
+ */
+
+  protected void transform() throws IOException{
+    open();
+    Line line = input_.readLine();
+    while(line != null){
+      processLine(line, output_);
+      line = input_.readLine();
+    }
+    output_.closeWriter();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Prepares the filter before the first line is processed. Does nothing by
+ * default.
+ * @return void
+ * @exception IOException if the filter can not be prepared
+ */
+
+  protected void open() throws IOException{
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Processes a single line and writes the resulting lines to the output.
+ * @param line line record
+ * @param output output of the processed lines
+ * @return void
+ * @exception IOException if the lines can not be written
+ */
+
+  abstract protected void processLine(Line line, LineSink output) throws IOException;
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
@@ -0,0 +1,61 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    LineSink.java
+ *
+ *  Purpose: Receiver of line records
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Receiver of line records
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+
+/**
+ *  A line sink receives line records one by one. A pipe is a line sink that passes
+ *  the lines to the next filter in another thread, whereas a fused chain of line filters
+ *  passes them to the next filter in the same thread by a direct method call.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public interface LineSink{
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Receives a line record
+ * @param line line record
+ * @return void
+ * @exception IOException if the line can not be received
+ */
+
+  public void writeLine(Line line) throws IOException;
+
+}
@@ -0,0 +1,187 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    Merge.java
+ *
+ *  Purpose: Joins several streams of lines into one pipe
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Joins several streams of lines into one pipe
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  Merge filter reads line records from several input pipes and writes them all
+ *  to its output pipe. The input pipes are read in turns, one line at a time, as lines
+ *  become available. Thus, no input waits for another one, even if all inputs come
+ *  from the same Tee filter. The lines of one input keep their order, the lines of
+ *  different inputs are interleaved. If no input has a line, the filter parks until
+ *  the writer of one of the inputs wakes it up, thus an idle merge does not use the CPU.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class Merge extends Filter{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Number of idle rounds before the filter parks
+ *
+ */
+
+  private static final int SPINS = 128;
+
+/**
+ * Input pipes
+ *
+ */
+
+  private Pipe[] inputs_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Default constructor
+ * @param inputs input pipes
+ * @param output output pipe
+ */
+
+  public Merge(Pipe[] inputs, Pipe output){
+    super(inputs[0], output);
+    inputs_ = inputs;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Writes the lines from all input pipes to the output pipe.
+ * @return void
+ */
+
+  protected void transform() throws IOException{
+    boolean[] is_ended = new boolean[inputs_.length];
+    int open_count = inputs_.length;
+    int spins = 0;
+    while(open_count > 0){
+      boolean is_idle = true;
+      for(int i = 0; i < inputs_.length; i++){
+        if(is_ended[i])
+          continue;
+
+            // the writer must be checked before the line is polled, since
+            // it writes its last line before it closes the pipe
+        boolean is_closed = inputs_[i].isWriterClosed();
+        Line line = inputs_[i].pollLine();
+        if(line != null){
+          output_.writeLine(line);
+          is_idle = false;
+        }else if(is_closed){
+          is_ended[i] = true;
+          open_count--;
+        }
+      }
+
+          // no input had a line, wait a little and then park until
+          // the writer of an input wakes us up
+      if(!is_idle)
+        spins = 0;
+      else if(spins < SPINS){
+        spins++;
+        Thread.yield();
+      }else if(open_count > 0)
+        await(is_ended);
+    }
+
+        // close the pipe
+    output_.closeWriter();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Parks the calling thread until one of the open input pipes has a line
+ * or is closed. The thread is registered as the waiting reader of all open
+ * inputs before they are checked once more, thus no wake up is lost.
+ * @param is_ended flags of the inputs that have ended
+ * @return void
+ */
+
+  private void await(boolean[] is_ended){
+    Thread current = Thread.currentThread();
+    for(int i = 0; i < inputs_.length; i++)
+      if(!is_ended[i])
+        inputs_[i].setWaitingReader(current);
+    boolean is_ready = false;
+    for(int i = 0; i < inputs_.length && !is_ready; i++)
+      is_ready = !is_ended[i] && inputs_[i].isReady();
+    if(!is_ready)
+      LockSupport.park(this);
+    for(int i = 0; i < inputs_.length; i++)
+      if(!is_ended[i])
+        inputs_[i].setWaitingReader(null);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Closes all input pipes and the output pipe.
+ * @param cause failure of the filter
+ * @return void
+ */
+
+  void abort(Throwable cause){
+    super.abort(cause);
+    for(int i = 1; i < inputs_.length; i++){
+      try{
+        inputs_[i].closeReader();
+      }catch(IOException exc){
+      }
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
@@ -30,9 +30,12 @@ package kwic.pf;
 */
 
 import java.io.IOException;
+import kwic.util.OutputSink;
 
 /**
- *  Output prints the data from its input pipe on the standard output
+ *  Output prints the data from its input pipe on the standard output, or
+ *  writes it to another output sink. The data is read from the pipe and
+ *  written to the sink in large blocks of characters.
  *  @author  dhelic
  *  @version $Id$
 */
@@ -46,6 +49,20 @@ public class Output extends Filter{
  */
 //----------------------------------------------------------------------
 
+/**
+ * Size of the block of characters read from the pipe
+ *
+ */
+
+  private static final int BUFFER_SIZE = 8192;
+
+/**
+ * Output sink, null for the standard output
+ *
+ */
+
+  private OutputSink sink_;
+
 //----------------------------------------------------------------------
 /**
  * Constructors
@@ -63,6 +80,19 @@ public class Output extends Filter{
     super(input, null);
   }
 
+//----------------------------------------------------------------------
+/**
+ * Creates an Output writing to the specified sink. The sink is closed
+ * at the end of the data.
+ * @param input Input Pipe
+ * @param sink output sink
+ */
+
+  public Output(Pipe input, OutputSink sink){
+    super(input, null);
+    sink_ = sink;
+  }
+
 //----------------------------------------------------------------------
 /**
  * Methods
@@ -72,21 +102,21 @@ public class Output extends Filter{
 
 //----------------------------------------------------------------------
 /**
- * This method writes the data from the input pipe on the standard output.
+ * This method writes the data from the input pipe to the output sink.
  * @return void
  */
 
-  protected void transform(){
+  protected void transform() throws IOException{
+    OutputSink sink = (sink_ != null) ? sink_ : new OutputSink();
     try{
-      int c = input_.read();
-      while(c != -1){
-        System.out.print((char) c);
-        c = input_.read();
+      char[] buffer = new char[BUFFER_SIZE];
+      int count = input_.read(buffer, 0, buffer.length);
+      while(count != -1){
+        sink.write(buffer, 0, count);
+        count = input_.read(buffer, 0, buffer.length);
       }
-    }catch(IOException exc){
-      exc.printStackTrace();
-      System.err.println("KWIC Error: Broken pipe");
-      System.exit(1);      
+    }finally{
+      sink.close();
     }
   }
 
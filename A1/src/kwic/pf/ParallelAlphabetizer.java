@@ -0,0 +1,335 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    ParallelAlphabetizer.java
+ *
+ *  Purpose: Sorts lines by several threads
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Sorts lines by several threads
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *  ParallelAlphabetizer filter sorts lines like the Alphabetizer filter, but uses
+ *  several threads. It reads all lines from its input pipe and sorts them by sample
+ *  sort:
+ *  <ul>
+ *  <li>A sample of lines, evenly spread over the input, is sorted. The sample is cut
+ *  into as many equal parts as there are threads, and the first line of each part
+ *  (except the first one) becomes a splitter.
+ *  <li>The splitters divide all lines into buckets: a bucket holds the lines between
+ *  two neighbouring splitters. The threads find the bucket of each line and move
+ *  the lines into their buckets, each thread for its own part of the input.
+ *  <li>Each bucket is sorted by its own thread.
+ *  <li>The buckets are written to the output pipe in order. A bucket is written as
+ *  soon as it is sorted and all buckets before it have been written.
+ *  </ul>
+ *  Since all lines of a bucket are smaller than all lines of the next bucket, the
+ *  output is the same as the output of the Alphabetizer filter. Small inputs are
+ *  sorted by a single thread.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class ParallelAlphabetizer extends Filter{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Inputs with less lines are sorted by a single thread
+ *
+ */
+
+  private static final int SERIAL_SIZE = 8192;
+
+/**
+ * Number of sampled lines per bucket
+ *
+ */
+
+  private static final int OVERSAMPLING = 64;
+
+/**
+ * Alphabetical order of lines
+ *
+ */
+
+  private static final Comparator<Line> ORDER = new Comparator<Line>(){
+      public int compare(Line line1, Line line2){
+        return line1.compareTo(line2);
+      }
+    };
+
+/**
+ * Number of threads
+ *
+ */
+
+  private int threads_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Default constructor
+ * @param input input pipe
+ * @param output output pipe
+ * @param threads number of threads
+ */
+
+  public ParallelAlphabetizer(Pipe input, Pipe output, int threads){
+    super(input, output);
+    if(threads < 1)
+      throw new IllegalArgumentException("Invalid number of threads: " + threads);
+    threads_ = threads;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Sorts lines from a given set, read from the input pipe.
+ * @return void
+ */
+
+  protected void transform() throws IOException{
+    final ArrayList<Line> lines = new ArrayList<Line>();
+    Line line = input_.readLine();
+    while(line != null){
+      lines.add(line);
+      line = input_.readLine();
+    }
+    final int count = lines.size();
+    final Line[] sorted = new Line[count];
+
+    if(threads_ == 1 || count < SERIAL_SIZE){
+      lines.toArray(sorted);
+      Arrays.sort(sorted, ORDER);
+      write(sorted, 0, count);
+      output_.closeWriter();
+      return;
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads_);
+    try{
+      final int buckets = threads_;
+      final Line[] splitters = split(lines, buckets);
+
+          // each thread finds the buckets of the lines of its part of the
+          // input and counts them
+      final int[] bucket_of = new int[count];
+      final int[][] counts = new int[threads_][buckets];
+      Future<?>[] futures = new Future<?>[threads_];
+      for(int t = 0; t < threads_; t++){
+        final int part = t;
+        futures[t] = pool.submit(new Runnable(){
+            public void run(){
+              for(int i = partStart(part, count); i < partStart(part + 1, count); i++){
+                int bucket = bucket(splitters, lines.get(i));
+                bucket_of[i] = bucket;
+                counts[part][bucket]++;
+              }
+            }
+          });
+      }
+      await(futures);
+
+          // the lines of a bucket follow the lines of the previous buckets, 
+          // within a bucket the lines of a part follow the lines of the
+          // previous parts
+      final int[] bucket_start = new int[buckets + 1];
+      final int[][] positions = new int[threads_][buckets];
+      int position = 0;
+      for(int b = 0; b < buckets; b++){
+        bucket_start[b] = position;
+        for(int t = 0; t < threads_; t++){
+          positions[t][b] = position;
+          position += counts[t][b];
+        }
+      }
+      bucket_start[buckets] = position;
+
+          // each thread moves the lines of its part into their buckets
+      for(int t = 0; t < threads_; t++){
+        final int part = t;
+        futures[t] = pool.submit(new Runnable(){
+            public void run(){
+              int[] next = positions[part];
+              for(int i = partStart(part, count); i < partStart(part + 1, count); i++)
+                sorted[next[bucket_of[i]]++] = lines.get(i);
+            }
+          });
+      }
+      await(futures);
+      lines.clear();
+
+          // sort the buckets and write them in order
+      futures = new Future<?>[buckets];
+      for(int b = 0; b < buckets; b++){
+        final int bucket = b;
+        futures[b] = pool.submit(new Runnable(){
+            public void run(){
+              Arrays.sort(sorted, bucket_start[bucket], bucket_start[bucket + 1], ORDER);
+            }
+          });
+      }
+      for(int b = 0; b < buckets; b++){
+        await(new Future<?>[]{futures[b]});
+        write(sorted, bucket_start[b], bucket_start[b + 1]);
+      }
+
+          // close the pipe
+      output_.closeWriter();
+    }finally{
+      pool.shutdownNow();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Chooses the splitters from an evenly spread sample of lines.
+ * @param lines all lines
+ * @param buckets number of buckets
+ * @return Line[] sorted splitters, one less than buckets
+ */
+
+  private static Line[] split(ArrayList<Line> lines, int buckets){
+    int count = lines.size();
+    int sample_size = Math.min(count, buckets * OVERSAMPLING);
+    Line[] sample = new Line[sample_size];
+    for(int i = 0; i < sample_size; i++)
+      sample[i] = lines.get((int) ((long) i * count / sample_size));
+    Arrays.sort(sample, ORDER);
+    Line[] splitters = new Line[buckets - 1];
+    for(int b = 1; b < buckets; b++)
+      splitters[b - 1] = sample[b * sample_size / buckets];
+    return splitters;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Finds the bucket of a line. The bucket is the number of splitters
+ * which are smaller than or equal to the line.
+ * @param splitters sorted splitters
+ * @param line line
+ * @return int
+ */
+
+  private static int bucket(Line[] splitters, Line line){
+    int low = 0;
+    int high = splitters.length;
+    while(low < high){
+      int mid = (low + high) >>> 1;
+      if(splitters[mid].compareTo(line) <= 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index of the first line of a part of the input
+ * @param part part of the input
+ * @param count number of lines
+ * @return int
+ */
+
+  private int partStart(int part, int count){
+    return (int) ((long) part * count / threads_);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Waits until all tasks have finished. If a task has failed its exception
+ * is thrown.
+ * @param futures futures of the tasks
+ * @return void
+ * @exception IOException if the thread has been interrupted
+ */
+
+  private static void await(Future<?>[] futures) throws IOException{
+    try{
+      for(int i = 0; i < futures.length; i++)
+        futures[i].get();
+    }catch(InterruptedException exc){
+      throw new InterruptedIOException("Sort has been interrupted");
+    }catch(ExecutionException exc){
+      Throwable cause = exc.getCause();
+      if(cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if(cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes sorted lines to the output pipe
+ * @param lines sorted lines
+ * @param start index of the first line
+ * @param end index after the last line
+ * @return void
+ * @exception IOException if the lines can not be written
+ */
+
+  private void write(Line[] lines, int start, int end) throws IOException{
+    for(int i = start; i < end; i++)
+      output_.writeLine(lines[i]);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
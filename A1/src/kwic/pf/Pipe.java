@@ -31,19 +31,32 @@ package kwic.pf;
  * $Log$
 */
 
-import java.io.PipedReader;
-import java.io.PipedWriter;
 import java.io.IOException;
 
 /**
  *  A pipe object connects two data streams allowing data to be transmitted between
  *  them. Thus, whenever a client writes some data to the first stream,  this data
  *  become then available for reading in the second stream.
+ *  <p>
+ *  The characters are not handed over one by one. The writer collects them in a chunk
+ *  (char[]) and passes the whole chunk to the reader as soon as the chunk is full,
+ *  or when the writer flushes or closes the pipe. Full chunks travel through a bounded
+ *  ring buffer, consumed chunks travel back to the writer through a second ring buffer
+ *  and are reused. Thus, there is at most a fixed number of chunks in a pipe: if the
+ *  reader is slower than the writer, the writer waits until the reader returns a chunk.
+ *  Filters should prefer the bulk methods write(char[], int, int) and read(char[], int, int)
+ *  to the single character methods.
+ *  <p>
+ *  Besides characters a pipe transmits line records (see Line class). A line written
+ *  with writeLine is passed to the reader by reference and may be read with readLine.
+ *  Thus, filters that work on lines exchange tokenized lines and do not parse characters
+ *  again. A reader that reads characters from a pipe carrying lines gets each line
+ *  rendered as text and terminated by the line separator ('\n').
  *  @author  dhelic
  *  @version $Id$
 */
 
-public class Pipe{
+public class Pipe implements LineSink{
 
 //----------------------------------------------------------------------
 /**
@@ -53,18 +66,109 @@ public class Pipe{
 //----------------------------------------------------------------------
 
 /**
- * Pipe reader
+ * Default number of characters in a chunk
  *
  */
 
-  private PipedReader reader_;
+  public static final int CHUNK_SIZE = 8192;
 
 /**
- * Pipe writer
+ * Default number of chunks in a pipe
+ *
+ */
+
+  public static final int CHUNK_COUNT = 16;
+
+/**
+ * Default number of lines in a pipe
+ *
+ */
+
+  public static final int LINE_COUNT = 1024;
+
+/**
+ * Chunks and lines that are ready to be read
+ *
+ */
+
+  private RingBuffer<Object> full_;
+
+/**
+ * Consumed chunks that may be filled again
  *
  */ 
 
-  private PipedWriter writer_;
+  private RingBuffer<Chunk> free_;
+
+/**
+ * Size of a chunk
+ *
+ */
+
+  private int chunk_size_;
+
+/**
+ * Maximal number of chunks
+ *
+ */
+
+  private int chunk_count_;
+
+/**
+ * Number of chunks created so far, used by the writer only
+ *
+ */
+
+  private int allocated_ = 0;
+
+/**
+ * Chunk being filled by the writer
+ *
+ */
+
+  private Chunk write_chunk_;
+
+/**
+ * Writer closed flag
+ *
+ */
+
+  private boolean writer_closed_ = false;
+
+/**
+ * Failure of the writer, set if the writer has closed the pipe because it failed
+ *
+ */
+
+  private volatile Throwable failure_;
+
+/**
+ * Chunk being consumed by the reader
+ *
+ */
+
+  private Chunk read_chunk_;
+
+/**
+ * Position of the next character in the read chunk
+ *
+ */
+
+  private int read_position_;
+
+/**
+ * Chunk holding the rendered text of the last line read as characters
+ *
+ */
+
+  private Chunk render_chunk_;
+
+/**
+ * Reader closed flag
+ *
+ */
+
+  private boolean reader_closed_ = false;
 
 //----------------------------------------------------------------------
 /**
@@ -80,15 +184,31 @@ public class Pipe{
  */
 
   public Pipe() throws IOException{
-    writer_ = new PipedWriter();
-    reader_ = new PipedReader();
-    writer_.connect(reader_);
+    this(CHUNK_SIZE, CHUNK_COUNT);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a pipe with the specified chunk size and number of chunks. At most
+ * chunk_size * chunk_count characters may be written and not yet read.
+ * @param chunk_size number of characters in a chunk
+ * @param chunk_count number of chunks
+ * @exception IOException thrown if the pipe cannot connect the streams
+ */
+
+  public Pipe(int chunk_size, int chunk_count) throws IOException{
+    if(chunk_size < 1 || chunk_count < 1)
+      throw new IOException("Invalid pipe size: " + chunk_size + " x " + chunk_count);
+    chunk_size_ = chunk_size;
+    chunk_count_ = chunk_count;
+    full_ = new RingBuffer<Object>(Math.max(chunk_count, LINE_COUNT));
+    free_ = new RingBuffer<Chunk>(chunk_count);
   }
 
 //----------------------------------------------------------------------
 /**
  * Methods
- *Input 
+ *
  */
 //----------------------------------------------------------------------
 
@@ -101,18 +221,224 @@ public class Pipe{
  */
 
   public void write(int c) throws IOException{
-    writer_.write(c);
+    if(write_chunk_ == null)
+      acquireChunk();
+    write_chunk_.data_[write_chunk_.length_++] = (char) c;
+    if(write_chunk_.length_ == chunk_size_)
+      publishChunk();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method writes a number of characters to the pipe.
+ * @param chars characters to write
+ * @param offset index of the first character to write
+ * @param length number of characters to write
+ * @exception IOException thrown if we cannot write to the pipe
+ * @return void
+ */
+
+  public void write(char[] chars, int offset, int length) throws IOException{
+    while(length > 0){
+      if(write_chunk_ == null)
+        acquireChunk();
+      int count = Math.min(length, chunk_size_ - write_chunk_.length_);
+      System.arraycopy(chars, offset, write_chunk_.data_, write_chunk_.length_, count);
+      write_chunk_.length_ += count;
+      offset += count;
+      length -= count;
+      if(write_chunk_.length_ == chunk_size_)
+        publishChunk();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method writes all characters of a string to the pipe.
+ * @param str string to write
+ * @exception IOException thrown if we cannot write to the pipe
+ * @return void
+ */
+
+  public void write(String str) throws IOException{
+    int offset = 0;
+    int length = str.length();
+    while(length > 0){
+      if(write_chunk_ == null)
+        acquireChunk();
+      int count = Math.min(length, chunk_size_ - write_chunk_.length_);
+      str.getChars(offset, offset + count, write_chunk_.data_, write_chunk_.length_);
+      write_chunk_.length_ += count;
+      offset += count;
+      length -= count;
+      if(write_chunk_.length_ == chunk_size_)
+        publishChunk();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method writes a line record to the pipe. The characters written
+ * before are passed to the reader first.
+ * @param line line to write
+ * @exception IOException thrown if we cannot write to the pipe
+ * @return void
+ */
+
+  public void writeLine(Line line) throws IOException{
+    if(writer_closed_)
+      throw new IOException("Write end of the pipe is closed");
+    if(free_.isClosed())
+      throw new IOException("Read end of the pipe is closed");
+    flush();
+    full_.put(line);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Passes the characters written so far to the reader, even if the current
+ * chunk is not full yet.
+ * @exception IOException thrown if we cannot write to the pipe
+ * @return void
+ */
+
+  public void flush() throws IOException{
+    if(write_chunk_ != null && write_chunk_.length_ > 0)
+      publishChunk();
   }
 
 //----------------------------------------------------------------------
 /**
  * This method reads a character from the pipe.
  * @exception IOException thrown if we cannot read from the pipe
- * @return char next chracter in the stream
+ * @return char next chracter in the stream, or -1 if the end of the stream
+ * has been reached
  */
 
   public int read() throws IOException{
-    return reader_.read();
+    if(read_chunk_ == null || read_position_ == read_chunk_.length_)
+      if(!nextChunk())
+        return -1;
+    return read_chunk_.data_[read_position_++];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method reads a number of characters from the pipe. It waits until
+ * at least one character is available, but it does not wait for more
+ * characters than are available at once.
+ * @param chars buffer for the characters read
+ * @param offset index in the buffer where to store the first character
+ * @param length maximal number of characters to read
+ * @exception IOException thrown if we cannot read from the pipe
+ * @return int number of characters read, or -1 if the end of the stream
+ * has been reached
+ */
+
+  public int read(char[] chars, int offset, int length) throws IOException{
+    if(length == 0)
+      return 0;
+    if(read_chunk_ == null || read_position_ == read_chunk_.length_)
+      if(!nextChunk())
+        return -1;
+    int count = Math.min(length, read_chunk_.length_ - read_position_);
+    System.arraycopy(read_chunk_.data_, read_position_, chars, offset, count);
+    read_position_ += count;
+    return count;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method reads a line record from the pipe.
+ * @exception IOException thrown if we cannot read from the pipe, or if
+ * the pipe carries characters instead of lines
+ * @return Line next line in the stream, or null if the end of the stream
+ * has been reached
+ */
+
+  public Line readLine() throws IOException{
+    if(reader_closed_)
+      throw new IOException("Read end of the pipe is closed");
+    if(read_chunk_ != null && read_position_ < read_chunk_.length_)
+      throw new IOException("Pipe carries characters, not lines");
+    recycleChunk();
+    Object entry = full_.take();
+    if(entry == null){
+      checkWriter();
+      return null;
+    }
+    if(!(entry instanceof Line)){
+      free_.put((Chunk) entry);
+      throw new IOException("Pipe carries characters, not lines");
+    }
+    return (Line) entry;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * This method reads a line record from the pipe without waiting.
+ * @exception IOException thrown if we cannot read from the pipe, or if
+ * the pipe carries characters instead of lines
+ * @return Line next line in the stream, or null if no line is available
+ * at the moment
+ * @see #isWriterClosed
+ */
+
+  public Line pollLine() throws IOException{
+    if(reader_closed_)
+      throw new IOException("Read end of the pipe is closed");
+    if(read_chunk_ != null && read_position_ < read_chunk_.length_)
+      throw new IOException("Pipe carries characters, not lines");
+    recycleChunk();
+    Object entry = full_.poll();
+    if(entry == null){
+      if(full_.isClosed())
+        checkWriter();
+      return null;
+    }
+    if(!(entry instanceof Line)){
+      free_.put((Chunk) entry);
+      throw new IOException("Pipe carries characters, not lines");
+    }
+    return (Line) entry;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Checks if the writer of this pipe has been closed. If this method returns
+ * true and a following pollLine call returns null, the end of the stream
+ * has been reached.
+ * @return boolean
+ */
+
+  public boolean isWriterClosed(){
+    return full_.isClosed();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Checks if the reader can go on without waiting, i.e., if there is data
+ * in the pipe or the writer has been closed.
+ * @return boolean
+ * @see #setWaitingReader
+ */
+
+  public boolean isReady(){
+    return !full_.isEmpty() || full_.isClosed();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the thread which is woken up when the writer passes data to the
+ * reader or closes the pipe. Used by a reader that reads several pipes with
+ * pollLine, thus the reader thread may wait for all of them at once.
+ * @param reader thread to wake up, or null
+ * @return void
+ * @see #isReady
+ */
+
+  public void setWaitingReader(Thread reader){
+    full_.setWaitingConsumer(reader);
   }
 
 //----------------------------------------------------------------------
@@ -124,20 +450,160 @@ public class Pipe{
  */
 
   public void closeWriter() throws IOException{
-    writer_.flush();
-    writer_.close();
+    if(writer_closed_)
+      return;
+
+        // the reader sees the end of the data even if flushing fails
+    try{
+      flush();
+    }finally{
+      writer_closed_ = true;
+      full_.close();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Closes the writer of this pipe because the writer has failed. Data that has not
+ * been flushed is discarded. The reader gets the data written so far, and then
+ * a BrokenPipeException instead of the end of the stream, thus a failed filter
+ * makes the following filters fail as well instead of finishing with incomplete data.
+ * @param cause failure of the writer
+ * @return void
+ * @see #closeWriter
+ */
+
+  public void failWriter(Throwable cause){
+    if(writer_closed_)
+      return;
+    failure_ = (cause != null) ? cause : new IOException("Writer of the pipe has failed");
+    writer_closed_ = true;
+    write_chunk_ = null;
+    full_.close();
   }
 
 //----------------------------------------------------------------------
 /**
  * Closes the reader of this pipe. After calling this method no data
- * can be read from the pipe.
+ * can be read from the pipe. A writer that waits for a free chunk is
+ * released with an exception. May be called by the reader only.
  * @return void
  * @exception IOException thrown if we cannot close the reader
  */
 
   public void closeReader() throws IOException{
-    reader_.close();
+    reader_closed_ = true;
+    read_chunk_ = null;
+    free_.close();
+
+        // discard pending data so that a waiting writer is released
+    while(full_.poll() != null)
+      ;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets a chunk for the writer. A new chunk is created as long as the
+ * maximal number of chunks is not reached, otherwise the writer waits
+ * until the reader returns a consumed chunk.
+ * @exception IOException thrown if the pipe is closed
+ * @return void
+ */
+
+  private void acquireChunk() throws IOException{
+    if(writer_closed_)
+      throw new IOException("Write end of the pipe is closed");
+    if(free_.isClosed())
+      throw new IOException("Read end of the pipe is closed");
+    Chunk chunk = free_.poll();
+    if(chunk == null && allocated_ < chunk_count_){
+      allocated_++;
+      chunk = new Chunk(chunk_size_);
+    }
+    if(chunk == null)
+      chunk = free_.take();
+    if(chunk == null)
+      throw new IOException("Read end of the pipe is closed");
+    chunk.length_ = 0;
+    write_chunk_ = chunk;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Passes the current write chunk to the reader.
+ * @return void
+ */
+
+  private void publishChunk(){
+    full_.put(write_chunk_);
+    write_chunk_ = null;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Returns the consumed read chunk to the writer and waits for the next one.
+ * @exception IOException thrown if the reader is closed
+ * @return boolean false if the end of the stream has been reached
+ */
+
+  private boolean nextChunk() throws IOException{
+    if(reader_closed_)
+      throw new IOException("Read end of the pipe is closed");
+    recycleChunk();
+    Object entry = full_.take();
+    if(entry == null){
+      checkWriter();
+      return false;
+    }
+    if(entry instanceof Line)
+      read_chunk_ = render((Line) entry);
+    else
+      read_chunk_ = (Chunk) entry;
+    read_position_ = 0;
+    return true;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Called by the reader at the end of the stream. Throws an exception
+ * if the writer has failed.
+ * @exception BrokenPipeException if the writer has failed
+ * @return void
+ */
+
+  private void checkWriter() throws IOException{
+    Throwable failure = failure_;
+    if(failure != null)
+      throw new BrokenPipeException(failure);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Returns the consumed read chunk to the writer.
+ * @return void
+ */
+
+  private void recycleChunk(){
+    if(read_chunk_ != null && read_chunk_ != render_chunk_)
+      free_.put(read_chunk_);
+    read_chunk_ = null;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Renders a line followed by the line separator into the render chunk.
+ * @param line line to render
+ * @return Chunk
+ */
+
+  private Chunk render(Line line){
+    int length = line.getLength() + 1;
+    if(render_chunk_ == null || render_chunk_.data_.length < length)
+      render_chunk_ = new Chunk(Math.max(length, chunk_size_));
+    line.getLine(render_chunk_.data_, 0);
+    render_chunk_.data_[length - 1] = '\n';
+    render_chunk_.length_ = length;
+    return render_chunk_;
   }
 
 //----------------------------------------------------------------------
@@ -147,4 +613,56 @@ public class Pipe{
  */
 //----------------------------------------------------------------------
 
+//----------------------------------------------------------------------
+/**
+ * A chunk of characters travelling through the pipe
+ *
+ */
+
+  private static class Chunk{
+
+/**
+ * Characters
+ *
+ */
+
+    private char[] data_;
+
+/**
+ * Number of valid characters
+ *
+ */
+
+    private int length_;
+
+//----------------------------------------------------------------------
+/**
+ * @param size capacity of the chunk
+ */
+
+    private Chunk(int size){
+      data_ = new char[size];
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Thrown to the reader of a pipe whose writer has failed. The cause is
+ * the failure of the writer.
+ */
+
+  public static class BrokenPipeException extends IOException{
+
+    private static final long serialVersionUID = 1L;
+
+//----------------------------------------------------------------------
+/**
+ * @param cause failure of the writer
+ */
+
+    public BrokenPipeException(Throwable cause){
+      super("Writer of the pipe has failed", cause);
+    }
+  }
+
 }
@@ -0,0 +1,424 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    PipelineBuilder.java
+ *
+ *  Purpose: Composes filters and pipes into pipelines
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Composes filters and pipes into pipelines
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import kwic.util.OutputSink;
+
+/**
+ *  A pipeline builder composes filters into a pipeline without wiring the pipes by
+ *  hand. Each filter is appended to a stream of lines, i.e. to the output pipe of the
+ *  previous filter, and returns the stream of its own output. For example, the KWIC index
+ *  is built as follows:
+ *  <pre>
+ *    PipelineBuilder builder = new PipelineBuilder();
+ *    builder.read(in).capitalize().shift().removeNoise(noise).sort().capitalize().print();
+ *    builder.execute(executor);
+ *  </pre>
+ *  A pipeline need not be linear. A stream may be forked into several branches
+ *  (see Tee class), which share the line records, so that several outputs are
+ *  produced from a single pass over the input. Several streams may be merged into
+ *  one (see Merge class). Every stream must be consumed by exactly one filter.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class PipelineBuilder{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Filters of the pipeline in the order they have been appended
+ *
+ */
+
+  private ArrayList<Filter> filters_ = new ArrayList<Filter>();
+
+/**
+ * All streams of the pipeline
+ *
+ */
+
+  private ArrayList<Stream> streams_ = new ArrayList<Stream>();
+
+/**
+ * Fusion flag, if set chains of line filters run as single filters
+ *
+ */
+
+  private boolean fused_ = false;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Sets the fusion flag. If it is set chains of line filters run as single
+ * filters (see FusedFilter class).
+ * @param fused fusion flag
+ * @return void
+ */
+
+  public void setFused(boolean fused){
+    fused_ = fused;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Starts a stream with an Input filter reading the specified input.
+ * @param in KWIC input
+ * @return Stream stream of the parsed lines
+ * @exception IOException if the pipe can not be created
+ */
+
+  public Stream read(InputStream in) throws IOException{
+    Stream stream = new Stream();
+    add(new Input(in, stream.pipe_));
+    return stream;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Merges several streams into one.
+ * @param streams streams to merge
+ * @return Stream stream of the lines from all streams
+ * @exception IOException if the pipe can not be created
+ */
+
+  public Stream merge(Stream[] streams) throws IOException{
+    Pipe[] inputs = new Pipe[streams.length];
+    for(int i = 0; i < streams.length; i++)
+      inputs[i] = streams[i].consume();
+    Stream stream = new Stream();
+    add(new Merge(inputs, stream.pipe_));
+    return stream;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the filters of the pipeline. If the fusion flag is set chains of line
+ * filters are fused.
+ * @return Filter[]
+ * @exception IllegalStateException if a stream has not been consumed
+ */
+
+  public Filter[] build(){
+    for(int i = 0; i < streams_.size(); i++)
+      if(!streams_.get(i).is_consumed_)
+        throw new IllegalStateException("Stream " + i + " of the pipeline is not consumed");
+    Filter[] filters = filters_.toArray(new Filter[filters_.size()]);
+    if(fused_)
+      filters = FusedFilter.fuse(filters);
+    return filters;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Runs the pipeline on the specified executor.
+ * @param executor pipeline executor
+ * @return CompletableFuture future completed when all filters have finished
+ * @exception IllegalStateException if a stream has not been consumed
+ */
+
+  public CompletableFuture<Void> execute(PipelineExecutor executor){
+    return executor.execute(build());
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Appends a filter to the pipeline
+ * @param filter filter
+ * @return void
+ */
+
+  private void add(Filter filter){
+    filters_.add(filter);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * A stage creates a filter connected to the specified pipes. It is used to
+ * append filters that have no method of their own in the Stream class.
+ */
+
+  public interface Stage{
+
+//----------------------------------------------------------------------
+/**
+ * Creates a filter
+ * @param input input pipe
+ * @param output output pipe, or null for a filter that ends a stream
+ * @return Filter
+ * @exception IOException if the filter can not be created
+ */
+
+    public Filter create(Pipe input, Pipe output) throws IOException;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * A stream is the output pipe of a filter in the pipeline, to which the
+ * next filter is appended.
+ */
+
+  public class Stream{
+
+/**
+ * Pipe of this stream
+ *
+ */
+
+    private Pipe pipe_;
+
+/**
+ * Set when a filter reads this stream
+ *
+ */
+
+    private boolean is_consumed_ = false;
+
+    private Stream() throws IOException{
+      pipe_ = new Pipe();
+      streams_.add(this);
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Appends a filter created by the specified stage to this stream.
+ * @param stage stage creating the filter
+ * @return Stream stream of the output of the filter
+ * @exception IOException if the filter can not be created
+ */
+
+    public Stream through(Stage stage) throws IOException{
+      Pipe input = consume();
+      Stream stream = new Stream();
+      add(stage.create(input, stream.pipe_));
+      return stream;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Ends this stream with a filter created by the specified stage.
+ * @param stage stage creating the filter
+ * @return Filter the created filter
+ * @exception IOException if the filter can not be created
+ */
+
+    public Filter to(Stage stage) throws IOException{
+      Filter filter = stage.create(consume(), null);
+      add(filter);
+      return filter;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Appends a LineTransformer filter.
+ * @return Stream stream of the capitalized lines
+ * @exception IOException if the pipe can not be created
+ */
+
+    public Stream capitalize() throws IOException{
+      Pipe input = consume();
+      Stream stream = new Stream();
+      add(new LineTransformer(input, stream.pipe_));
+      return stream;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Appends a CircularShifter filter.
+ * @return Stream stream of the circular shifts
+ * @exception IOException if the pipe can not be created
+ */
+
+    public Stream shift() throws IOException{
+      Pipe input = consume();
+      Stream stream = new Stream();
+      add(new CircularShifter(input, stream.pipe_));
+      return stream;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Appends a ShiftFilter filter.
+ * @param noise noise words file
+ * @return Stream stream of the lines which do not start with a noise word
+ * @exception IOException if the pipe can not be created
+ */
+
+    public Stream removeNoise(FileInputStream noise) throws IOException{
+      Pipe input = consume();
+      Stream stream = new Stream();
+      add(new ShiftFilter(input, stream.pipe_, noise));
+      return stream;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Appends an Alphabetizer filter that sorts in memory.
+ * @return Stream stream of the sorted lines
+ * @exception IOException if the pipe can not be created
+ */
+
+    public Stream sort() throws IOException{
+      return sort(0, null);
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Appends an Alphabetizer filter that sorts runs of the specified size
+ * and merges them on the disk.
+ * @param memory memory for a run in bytes, 0 to sort in memory
+ * @param temp_dir directory for the runs, null for the default one
+ * @return Stream stream of the sorted lines
+ * @exception IOException if the pipe can not be created
+ */
+
+    public Stream sort(long memory, File temp_dir) throws IOException{
+      Pipe input = consume();
+      Stream stream = new Stream();
+      add(new Alphabetizer(input, stream.pipe_, memory, temp_dir));
+      return stream;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Appends a ParallelAlphabetizer filter.
+ * @param threads number of threads
+ * @return Stream stream of the sorted lines
+ * @exception IOException if the pipe can not be created
+ */
+
+    public Stream sortParallel(int threads) throws IOException{
+      Pipe input = consume();
+      Stream stream = new Stream();
+      add(new ParallelAlphabetizer(input, stream.pipe_, threads));
+      return stream;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Forks this stream into the specified number of branches. All branches
+ * get the same lines.
+ * @param count number of branches
+ * @return Stream[] branches
+ * @exception IOException if the pipes can not be created
+ */
+
+    public Stream[] fork(int count) throws IOException{
+      Pipe input = consume();
+      Stream[] streams = new Stream[count];
+      Pipe[] outputs = new Pipe[count];
+      for(int i = 0; i < count; i++){
+        streams[i] = new Stream();
+        outputs[i] = streams[i].pipe_;
+      }
+      add(new Tee(input, outputs));
+      return streams;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Ends this stream with an Output filter.
+ * @return void
+ */
+
+    public void print(){
+      add(new Output(consume()));
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Ends this stream with an Output filter writing to the specified sink.
+ * @param sink output sink, closed at the end of the stream
+ * @return void
+ */
+
+    public void print(OutputSink sink){
+      add(new Output(consume(), sink));
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Ends this stream with a WordCounter filter.
+ * @return WordCounter counter of the first words of the lines
+ */
+
+    public WordCounter countWords(){
+      WordCounter counter = new WordCounter(consume());
+      add(counter);
+      return counter;
+    }
+
+//----------------------------------------------------------------------
+/**
+ * Marks this stream as consumed
+ * @return Pipe pipe of this stream
+ * @exception IllegalStateException if the stream has been consumed already
+ */
+
+    private Pipe consume(){
+      if(is_consumed_)
+        throw new IllegalStateException("Stream is consumed already, use fork");
+      is_consumed_ = true;
+      return pipe_;
+    }
+  }
+
+}
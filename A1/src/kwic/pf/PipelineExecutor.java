@@ -0,0 +1,249 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    PipelineExecutor.java
+ *
+ *  Purpose: Runs pipelines of filters on an executor service
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Runs pipelines of filters on an executor service
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *  A pipeline executor runs pipelines of filters on the threads of an executor service
+ *  instead of creating a new thread for each filter. Many independent pipelines may be
+ *  run by the same executor at the same time. For each pipeline the executor returns a
+ *  future, which is completed when all filters of the pipeline have finished. If a filter
+ *  fails, it closes its pipes, so that the other filters of the pipeline fail as well
+ *  instead of finishing with incomplete data, and the future is completed with the exception
+ *  of the first failed filter.
+ *  <p>
+ *  The filters of a pipeline wait for each other, thus all of them have to run at the same
+ *  time. If the executor service has a limited number of threads, the pipeline executor
+ *  starts a pipeline only when there is a free thread for each of its filters. Otherwise,
+ *  a few partially started pipelines could occupy all threads and wait forever for their
+ *  remaining filters. An executor service that creates a new thread for each task (e.g.
+ *  a cached thread pool or a virtual thread executor) needs no such limit.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class PipelineExecutor{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Executor service that runs the filters
+ *
+ */
+
+  private ExecutorService executor_;
+
+/**
+ * True if the executor service has been created by this object
+ *
+ */
+
+  private boolean is_owner_;
+
+/**
+ * Number of threads of the executor service
+ *
+ */
+
+  private int thread_count_;
+
+/**
+ * Free threads of the executor service, null if it is not limited
+ *
+ */
+
+  private Semaphore free_threads_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Creates an executor with its own pool of the specified number of threads.
+ * The pool is stopped by shutdown method.
+ * @param threads number of threads
+ */
+
+  public PipelineExecutor(int threads){
+    this(Executors.newFixedThreadPool(threads), threads);
+    is_owner_ = true;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates an executor which runs the filters on the specified executor
+ * service, which runs at most the specified number of tasks at the same time.
+ * @param executor executor service
+ * @param threads number of threads of the executor service
+ */
+
+  public PipelineExecutor(ExecutorService executor, int threads){
+    if(threads < 1)
+      throw new IllegalArgumentException("Invalid number of threads: " + threads);
+    executor_ = executor;
+    thread_count_ = threads;
+    free_threads_ = new Semaphore(threads);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates an executor which runs the filters on the specified executor
+ * service, which starts each task at once, e.g. by creating a new thread.
+ * @param executor executor service
+ */
+
+  public PipelineExecutor(ExecutorService executor){
+    executor_ = executor;
+    thread_count_ = Integer.MAX_VALUE;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Starts a pipeline. If the executor service has a limited number of
+ * threads, this method waits until there is a free thread for each filter.
+ * @param filters connected filters of the pipeline
+ * @return CompletableFuture future completed when all filters have finished
+ */
+
+  public CompletableFuture<Void> execute(Filter[] filters){
+    if(filters.length > thread_count_)
+      throw new IllegalArgumentException("Pipeline of " + filters.length + 
+                                         " filters needs more threads than " + 
+                                         thread_count_);
+    if(free_threads_ != null)
+      free_threads_.acquireUninterruptibly(filters.length);
+
+    final CompletableFuture<Void> future = new CompletableFuture<Void>();
+    final AtomicInteger running = new AtomicInteger(filters.length);
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    if(filters.length == 0)
+      future.complete(null);
+
+    for(int i = 0; i < filters.length; i++){
+      final Filter filter = filters[i];
+      Runnable task = new Runnable(){
+          public void run(){
+            try{
+              filter.execute();
+            }catch(Throwable exc){
+
+                  // a filter whose previous filter has failed fails with
+                  // the same cause, which may be recorded first
+              if(exc instanceof Pipe.BrokenPipeException)
+                exc = exc.getCause();
+              failure.compareAndSet(null, exc);
+            }finally{
+              finish(future, running, failure);
+            }
+          }
+        };
+      try{
+        executor_.execute(task);
+      }catch(RejectedExecutionException exc){
+
+            // filters that have not been started close their pipes, so
+            // that the started filters do not wait for them
+        failure.compareAndSet(null, exc);
+        for(int j = i; j < filters.length; j++){
+          filters[j].abort(exc);
+          finish(future, running, failure);
+        }
+        break;
+      }
+    }
+    return future;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Called when a filter of a pipeline has finished. Frees the thread of
+ * the filter and completes the future after the last filter.
+ * @param future future of the pipeline
+ * @param running number of running filters of the pipeline
+ * @param failure first failure of the pipeline
+ * @return void
+ */
+
+  private void finish(CompletableFuture<Void> future, AtomicInteger running,
+                      AtomicReference<Throwable> failure){
+    if(free_threads_ != null)
+      free_threads_.release();
+    if(running.decrementAndGet() == 0){
+      Throwable exc = failure.get();
+      if(exc == null)
+        future.complete(null);
+      else
+        future.completeExceptionally(exc);
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Stops the executor service if it has been created by this object. 
+ * Running pipelines are finished.
+ * @return void
+ */
+
+  public void shutdown(){
+    if(is_owner_)
+      executor_.shutdown();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
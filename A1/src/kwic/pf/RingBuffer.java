@@ -0,0 +1,297 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    RingBuffer.java
+ *
+ *  Purpose: Bounded single-producer single-consumer queue
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Bounded lock-free queue connecting exactly one producer thread
+ *  with exactly one consumer thread.
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  A ring buffer is a bounded queue of object references shared by exactly one
+ *  producer thread and one consumer thread. Since each index of the ring is written
+ *  by one thread only, no locks are needed: the producer publishes an element by
+ *  advancing the volatile tail index, and the consumer frees a slot by advancing the
+ *  volatile head index. If the ring is full the producer waits, if it is empty the
+ *  consumer waits. Thus, a fast producer is slowed down to the speed of its consumer
+ *  (backpressure). A waiting thread spins for a short while and then parks itself
+ *  until the other side wakes it up.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class RingBuffer<T>{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Number of spins before a waiting thread parks
+ *
+ */
+
+  private static final int SPINS = 128;
+
+/**
+ * Ring slots, the length is a power of two
+ *
+ */
+
+  private final Object[] slots_;
+
+/**
+ * Mask to map indices to slots
+ *
+ */
+
+  private final int mask_;
+
+/**
+ * Index of the next slot to read, written by the consumer only
+ *
+ */
+
+  private volatile long head_ = 0;
+
+/**
+ * Index of the next slot to write, written by the producer only
+ *
+ */
+
+  private volatile long tail_ = 0;
+
+/**
+ * Set by the producer when no more elements will be put
+ *
+ */
+
+  private volatile boolean closed_ = false;
+
+/**
+ * Producer thread waiting for a free slot
+ *
+ */
+
+  private volatile Thread waiting_producer_;
+
+/**
+ * Consumer thread waiting for an element
+ *
+ */
+
+  private volatile Thread waiting_consumer_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Creates a ring which holds at least the specified number of elements.
+ * @param capacity minimal capacity of the ring
+ */
+
+  public RingBuffer(int capacity){
+    int size = 1;
+    while(size < capacity)
+      size <<= 1;
+    slots_ = new Object[size];
+    mask_ = size - 1;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Appends an element to the ring. If the ring is full this method waits
+ * until the consumer frees a slot. May be called by the producer only.
+ * @param element element to append
+ * @return void
+ */
+
+  public void put(T element){
+    long tail = tail_;
+    int spins = 0;
+    while(tail - head_ == slots_.length){
+      if(spins < SPINS){
+        spins++;
+        Thread.yield();
+      }else{
+        waiting_producer_ = Thread.currentThread();
+        if(tail - head_ == slots_.length)
+          LockSupport.park(this);
+        waiting_producer_ = null;
+      }
+    }
+    slots_[(int) tail & mask_] = element;
+    tail_ = tail + 1;
+
+        // wake up the consumer if it is parked
+    Thread consumer = waiting_consumer_;
+    if(consumer != null)
+      LockSupport.unpark(consumer);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Removes the first element from the ring. If the ring is empty this method
+ * waits until the producer appends an element or closes the ring. May be called
+ * by the consumer only.
+ * @return T the first element, or null if the ring is empty and closed
+ */
+
+  public T take(){
+    long head = head_;
+    int spins = 0;
+    while(head == tail_){
+      if(closed_ && head == tail_)
+        return null;
+      if(spins < SPINS){
+        spins++;
+        Thread.yield();
+      }else{
+        waiting_consumer_ = Thread.currentThread();
+        if(head == tail_ && !closed_)
+          LockSupport.park(this);
+        waiting_consumer_ = null;
+      }
+    }
+    int slot = (int) head & mask_;
+    @SuppressWarnings("unchecked")
+    T element = (T) slots_[slot];
+    slots_[slot] = null;
+    head_ = head + 1;
+
+        // wake up the producer if it is parked
+    Thread producer = waiting_producer_;
+    if(producer != null)
+      LockSupport.unpark(producer);
+    return element;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Removes the first element from the ring without waiting. May be called
+ * by the consumer only.
+ * @return T the first element, or null if the ring is empty
+ */
+
+  public T poll(){
+    long head = head_;
+    if(head == tail_)
+      return null;
+    int slot = (int) head & mask_;
+    @SuppressWarnings("unchecked")
+    T element = (T) slots_[slot];
+    slots_[slot] = null;
+    head_ = head + 1;
+    Thread producer = waiting_producer_;
+    if(producer != null)
+      LockSupport.unpark(producer);
+    return element;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Closes the ring. After calling this method the producer may not append
+ * any more elements. The consumer still gets all elements appended so far.
+ * @return void
+ */
+
+  public void close(){
+    closed_ = true;
+    Thread consumer = waiting_consumer_;
+    if(consumer != null)
+      LockSupport.unpark(consumer);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Checks if the ring has been closed by the producer.
+ * @return boolean
+ */
+
+  public boolean isClosed(){
+    return closed_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Checks if the ring holds no elements. May be called by the consumer only.
+ * @return boolean
+ */
+
+  public boolean isEmpty(){
+    return head_ == tail_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Sets the thread which is woken up when the producer appends an element
+ * or closes the ring. A consumer that reads several rings without waiting
+ * (see poll) registers itself in all of them, checks them once more and
+ * parks until one of the producers wakes it up. May be called by the
+ * consumer only.
+ * @param consumer thread to wake up, or null
+ * @return void
+ */
+
+  public void setWaitingConsumer(Thread consumer){
+    waiting_consumer_ = consumer;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of elements the ring can hold
+ * @return int
+ */
+
+  public int getCapacity(){
+    return slots_.length;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
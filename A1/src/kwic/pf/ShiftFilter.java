@@ -4,119 +4,107 @@
 package kwic.pf;
 
 import java.io.BufferedReader;
-import java.io.CharArrayWriter;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.IdentityHashMap;
-import java.util.Map;
 
 /**
  * @author Rye
  * 
  */
-public class ShiftFilter extends Filter {
+public class ShiftFilter extends LineFilter {
 
 	private FileInputStream file = null;
-	private ArrayList<String> noiseWords;
+	private WordSet noiseWords;
 	
 	public ShiftFilter(Pipe input, Pipe output, FileInputStream file) {
 		super(input, output);
 		this.file = file;
-		this.noiseWords = new ArrayList<String>();
+		this.noiseWords = new WordSet();
 		// TODO Auto-generated constructor stub
 	}
 
 	@Override
-	protected void transform() {
-		// TODO Auto-generated method stub
+	protected void open() throws IOException {
 		this.readNoiseWords();
-		try {
-			CharArrayWriter writer = new CharArrayWriter();
-//			HashMap<String, String> lines = new HashMap<String, String>();
-			Map<String, String> lines = new IdentityHashMap<String, String>();
-			int c;
-			c = input_.read();
-			while (c != -1) {
-				
-				writer.write(c);
-				// add line
-				if (((char) c) == '\n') {
-					String line = writer.toString();
-					if (line.split(" ").length == 1) {
-						lines.put(line, "");
-					}
-					else {
-						lines.put(line.split(" ")[0], line.substring(line.indexOf(" ")));
-					}
-					writer.reset();
-//					System.out.println("line2 : " + line);
-				}
+	}
 
-				c = input_.read();
-			}
-			// Remove lines who's fist word is in the noise words.
-			lines = this.trimLine(lines);
-			
-			// Write lines to output
-			for (String line : lines.keySet()) {
-				char[] lineChars = (line +lines.get(line)).toCharArray();
-				for (int i = 0; i < lineChars.length; i++) {
-					output_.write((int)lineChars[i]);
-				}
-			}
-			
-			writer.close();
-//			output_.write('\n');
-			output_.closeWriter();
-			
-			
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+	@Override
+	protected void processLine(Line line, LineSink output) throws IOException {
+		// Forward the shift unless its first word is a noise word.
+		if (!this.noiseWords.contains(line, 0)) {
+			output.writeLine(line);
 		}
-
 	}
 	
-	private void readNoiseWords () {
-		BufferedReader in;
+	private void readNoiseWords () throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(this.file, "UTF-8"));
 		try {
-			in = new BufferedReader(new InputStreamReader(this.file, "UTF-8"));
 			String word = in.readLine();
 			while (word != null) {
 //				System.out.println("Noise word read: " + word);
 				this.noiseWords.add(word);
 				word = in.readLine();
 			}
-			in.close();
-			this.file.close();
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (UnsupportedEncodingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			
 		} finally {
-			
+			in.close();
 		}
 	}
 	
-	private Map<String, String> trimLine (Map<String, String> lines) {
-		for (String word : this.noiseWords) {
-			while (lines.containsKey(word)) {
-				lines.remove(word);
+	/**
+	 * Hash set of noise words. Words are looked up directly in the
+	 * character buffer of a line, so no string is created per shift and a
+	 * lookup takes constant time regardless of the number of noise words.
+	 * The hash of a word is the same as String.hashCode() of the word.
+	 */
+	private static class WordSet {
+
+		private String[] table = new String[16];
+		private int size = 0;
+
+		public void add(String word) {
+			if (this.size * 2 >= this.table.length) {
+				String[] old = this.table;
+				this.table = new String[old.length * 2];
+				this.size = 0;
+				for (String kept : old) {
+					if (kept != null) {
+						this.add(kept);
+					}
+				}
+			}
+			int mask = this.table.length - 1;
+			int slot = mix(word.hashCode()) & mask;
+			while (this.table[slot] != null) {
+				if (this.table[slot].equals(word)) {
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			this.table[slot] = word;
+			this.size++;
+		}
+
+		public boolean contains(Line line, int word) {
+			int length = line.getWordEnd(word) - line.getWordStart(word);
+			int hash = 0;
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + line.getChar(i, word);
+			}
+			int mask = this.table.length - 1;
+			int slot = mix(hash) & mask;
+			while (this.table[slot] != null) {
+				if (line.wordEquals(word, this.table[slot])) {
+					return true;
+				}
+				slot = (slot + 1) & mask;
 			}
+			return false;
+		}
+
+		private static int mix(int hash) {
+			return hash ^ (hash >>> 16);
 		}
-		return lines;
 	}
 
 }
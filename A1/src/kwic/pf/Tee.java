@@ -0,0 +1,135 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    Tee.java
+ *
+ *  Purpose: Copies a stream of lines into several pipes
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Copies a stream of lines into several pipes
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+
+/**
+ *  Tee filter writes each line record from its input pipe to several output pipes,
+ *  so that a single stream feeds several branches of a pipeline. The characters and
+ *  word indices of a line are shared by all branches and are never copied. The first
+ *  branch gets the line record itself, the other branches get views of it (see Line
+ *  class), since a filter of a branch may change the render flags of its records.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class Tee extends Filter{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Output pipes of all branches
+ *
+ */
+
+  private Pipe[] outputs_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Default constructor
+ * @param input input pipe
+ * @param outputs output pipes
+ */
+
+  public Tee(Pipe input, Pipe[] outputs){
+    super(input, outputs[0]);
+    outputs_ = outputs;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Writes each line from the input pipe to all output pipes.
+ * @return void
+ */
+
+  protected void transform() throws IOException{
+    Line line = input_.readLine();
+    Line[] views = new Line[outputs_.length];
+    while(line != null){
+
+          // make the views of all other branches before the line is written,
+          // since a filter of the first branch may change the line as soon
+          // as it reads it, e.g. capitalize it
+      views[0] = line;
+      for(int i = 1; i < outputs_.length; i++){
+        views[i] = new Line(line, 0);
+        views[i].setCapitalized(line.isCapitalized());
+      }
+      for(int i = 0; i < outputs_.length; i++)
+        outputs_[i].writeLine(views[i]);
+      line = input_.readLine();
+    }
+
+        // close the pipes
+    for(int i = 0; i < outputs_.length; i++)
+      outputs_[i].closeWriter();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Closes the input pipe and all output pipes.
+ * @param cause failure of the filter
+ * @return void
+ */
+
+  void abort(Throwable cause){
+    super.abort(cause);
+    for(int i = 1; i < outputs_.length; i++)
+      outputs_[i].failWriter(cause);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
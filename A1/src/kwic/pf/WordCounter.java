@@ -0,0 +1,142 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    WordCounter.java
+ *
+ *  Purpose: Counts the keywords of the circular shifts
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Counts the keywords of the circular shifts
+ * </file>
+*/
+
+package kwic.pf;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *  WordCounter filter is the end of a pipeline which counts how often each word
+ *  occurs as the first word of the line records from its input pipe. For a stream
+ *  of circular shifts this is the number of index entries per keyword, i.e., the
+ *  frequency of each word in the indexed lines. The counts may be read when the
+ *  pipeline has finished.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class WordCounter extends Filter{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Counts of the words in alphabetical order
+ *
+ */
+
+  private TreeMap<String, int[]> counts_ = new TreeMap<String, int[]>();
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Default constructor
+ * @param input input pipe
+ */
+
+  public WordCounter(Pipe input){
+    super(input, null);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Counts the first words of all lines from the input pipe.
+ * @return void
+ */
+
+  protected void transform() throws IOException{
+    Line line = input_.readLine();
+    while(line != null){
+      String word = line.getWord(0);
+      int[] count = counts_.get(word);
+      if(count == null)
+        counts_.put(word, new int[]{1});
+      else
+        count[0]++;
+      line = input_.readLine();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of lines starting with the specified word
+ * @param word word
+ * @return int
+ */
+
+  public int getCount(String word){
+    int[] count = counts_.get(word);
+    return (count == null) ? 0 : count[0];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Prints all words with their counts in alphabetical order, one word
+ * per line.
+ * @param out print stream
+ * @return void
+ */
+
+  public void print(PrintStream out){
+    Iterator<Map.Entry<String, int[]>> iterator = counts_.entrySet().iterator();
+    while(iterator.hasNext()){
+      Map.Entry<String, int[]> entry = iterator.next();
+      out.println(entry.getKey() + " " + entry.getValue()[0]);
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
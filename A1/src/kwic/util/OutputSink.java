@@ -0,0 +1,337 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    OutputSink.java
+ *
+ *  Purpose: Buffered character output to a file or the standard output
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Buffered character output to a file or the standard output
+ * </file>
+*/
+
+package kwic.util;
+
+/*
+ * $Log$
+*/
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  An output sink writes characters to a file or to the standard output. The characters
+ *  are collected in a character buffer. When the buffer is full, all characters are
+ *  encoded at once by a single charset encoder into a large direct byte buffer, which is
+ *  written to a channel in a single call. Thus, writing a character costs a few array
+ *  operations only, and there is no synchronization and no flushing per character or line.
+ *  The written characters reach the target when the sink is flushed or closed.
+ *  <p>
+ *  Characters that can not be encoded are replaced by the replacement bytes of the
+ *  charset, like with a print stream.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class OutputSink{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Default size of the buffers
+ *
+ */
+
+  public static final int BUFFER_SIZE = 65536;
+
+/**
+ * Target channel
+ *
+ */
+
+  private WritableByteChannel channel_;
+
+/**
+ * True if the channel is closed when the sink is closed
+ *
+ */
+
+  private boolean is_owner_;
+
+/**
+ * Output stream under the channel, or null
+ *
+ */
+
+  private OutputStream stream_;
+
+/**
+ * Reusable encoder
+ *
+ */
+
+  private CharsetEncoder encoder_;
+
+/**
+ * Characters which have not been encoded yet
+ *
+ */
+
+  private CharBuffer chars_;
+
+/**
+ * Encoded bytes which have not been written yet
+ *
+ */
+
+  private ByteBuffer bytes_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Creates a sink writing to the standard output in UTF-8, the charset of
+ * the input read by the tokenizer (see Tokenizer class).
+ */
+
+  public OutputSink(){
+    this(System.out, StandardCharsets.UTF_8, BUFFER_SIZE);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a sink writing to the standard output.
+ * @param charset charset of the output
+ * @param buffer_size size of the buffers in characters
+ */
+
+  public OutputSink(Charset charset, int buffer_size){
+    this(System.out, charset, buffer_size);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a sink writing to an output stream. The stream is flushed
+ * when the sink is flushed, but it is not closed.
+ * @param out output stream
+ * @param charset charset of the output
+ * @param buffer_size size of the buffers in characters
+ */
+
+  public OutputSink(OutputStream out, Charset charset, int buffer_size){
+    this(Channels.newChannel(out), false, charset, buffer_size);
+    stream_ = out;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a sink writing to a file. An existing file is overwritten.
+ * @param file name of the file
+ * @param charset charset of the output
+ * @param buffer_size size of the buffers in characters
+ * @exception IOException if the file can not be opened
+ */
+
+  public OutputSink(String file, Charset charset, int buffer_size) throws IOException{
+    this(new FileOutputStream(file).getChannel(), true, charset, buffer_size);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a sink writing to a channel.
+ * @param channel target channel
+ * @param is_owner true if the channel is closed when the sink is closed
+ * @param charset charset of the output
+ * @param buffer_size size of the buffers in characters
+ */
+
+  public OutputSink(WritableByteChannel channel, boolean is_owner, Charset charset, 
+                    int buffer_size){
+    if(buffer_size < 16)
+      throw new IllegalArgumentException("Invalid buffer size: " + buffer_size);
+    channel_ = channel;
+    is_owner_ = is_owner;
+    encoder_ = charset.newEncoder();
+    encoder_.onMalformedInput(CodingErrorAction.REPLACE);
+    encoder_.onUnmappableCharacter(CodingErrorAction.REPLACE);
+    chars_ = CharBuffer.allocate(buffer_size);
+    bytes_ = ByteBuffer.allocateDirect((int) Math.ceil(buffer_size * 
+                                                       encoder_.averageBytesPerChar()) + 16);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Writes a character
+ * @param c character
+ * @return void
+ * @exception IOException if the output can not be written
+ */
+
+  public void write(char c) throws IOException{
+    if(!chars_.hasRemaining())
+      encode(false);
+    chars_.put(c);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes characters from an array
+ * @param chars characters
+ * @param offset index of the first character
+ * @param length number of characters
+ * @return void
+ * @exception IOException if the output can not be written
+ */
+
+  public void write(char[] chars, int offset, int length) throws IOException{
+    while(length > 0){
+      if(!chars_.hasRemaining())
+        encode(false);
+      int count = Math.min(length, chars_.remaining());
+      chars_.put(chars, offset, count);
+      offset += count;
+      length -= count;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes the characters of a string
+ * @param str string
+ * @return void
+ * @exception IOException if the output can not be written
+ */
+
+  public void write(String str) throws IOException{
+    int offset = 0;
+    int length = str.length();
+    while(length > 0){
+      if(!chars_.hasRemaining())
+        encode(false);
+      int count = Math.min(length, chars_.remaining());
+      chars_.put(str, offset, offset + count);
+      offset += count;
+      length -= count;
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes all buffered characters to the target. A high surrogate at the
+ * end of the buffer is kept until its low surrogate is written.
+ * @return void
+ * @exception IOException if the output can not be written
+ */
+
+  public void flush() throws IOException{
+    encode(false);
+    drain();
+    if(stream_ != null)
+      stream_.flush();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes all buffered characters to the target and closes the target
+ * channel if it has been opened by this sink. The standard output is
+ * not closed.
+ * @return void
+ * @exception IOException if the output can not be written
+ */
+
+  public void close() throws IOException{
+    try{
+      encode(true);
+      while(encoder_.flush(bytes_).isOverflow())
+        drain();
+      drain();
+      encoder_.reset();
+      if(stream_ != null)
+        stream_.flush();
+    }finally{
+      if(is_owner_)
+        channel_.close();
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Encodes the buffered characters, the full byte buffer is written to
+ * the channel.
+ * @param is_end true if no more characters follow
+ * @return void
+ * @exception IOException if the output can not be written
+ */
+
+  private void encode(boolean is_end) throws IOException{
+    chars_.flip();
+    CoderResult result = encoder_.encode(chars_, bytes_, is_end);
+    while(result.isOverflow()){
+      drain();
+      result = encoder_.encode(chars_, bytes_, is_end);
+    }
+    chars_.compact();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Writes the encoded bytes to the channel
+ * @return void
+ * @exception IOException if the output can not be written
+ */
+
+  private void drain() throws IOException{
+    bytes_.flip();
+    while(bytes_.hasRemaining())
+      channel_.write(bytes_);
+    bytes_.clear();
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}
@@ -0,0 +1,554 @@
+// -*- Java -*-
+/*
+ * <copyright>
+ *
+ *  Copyright (c) 2002
+ *  Institute for Information Processing and Computer Supported New Media (IICM),
+ *  Graz University of Technology, Austria.
+ *
+ * </copyright>
+ *
+ * <file>
+ *
+ *  Name:    Tokenizer.java
+ *
+ *  Purpose: Splits UTF-8 encoded KWIC input into lines and words
+ *
+ *  Created: 18 Oct 2026
+ *
+ *  $Id$
+ *
+ *  Description:
+ *    Splits UTF-8 encoded KWIC input into lines and words
+ * </file>
+*/
+
+package kwic.util;
+
+/*
+ * $Log$
+*/
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ *  A tokenizer splits the content of a KWIC input file into lines and words. The content
+ *  is read as UTF-8 encoded text. Lines are separated by the line feed character ('\n'),
+ *  and words are delimited by any number and combination of Unicode white space characters
+ *  (see Character.isWhitespace), e.g. ' ', '\t', '\r' or the ideographic space. Malformed
+ *  bytes are replaced by the replacement character (U+FFFD).
+ *  <p>
+ *  The bytes are read in large blocks and decoded directly into a shared character buffer,
+ *  where the words of a line are stored one after another, separated by a single space
+ *  character. The words are reported as start and end indices in this buffer. Runs of
+ *  printable ASCII characters, which make up most of the usual input, are recognized eight
+ *  bytes at a time: a block of eight bytes is read as a single long value and tested for
+ *  non ASCII bytes and for bytes up to the space character with a few arithmetic
+ *  operations. Such a block is copied into the current word without further checks.
+ *  Only the other bytes are decoded and classified one by one.
+ *  <p>
+ *  The characters of a line are never overwritten by the following lines. If the
+ *  shared buffer is full, a new buffer is started and the current line is moved to it.
+ *  Thus, a line may keep a reference to the buffer and its indices.
+ *  @author  Rye
+ *  @version $Id$
+*/
+
+public class Tokenizer{
+
+//----------------------------------------------------------------------
+/**
+ * Fields
+ *
+ */
+//----------------------------------------------------------------------
+
+/**
+ * Default size of the buffers
+ *
+ */
+
+  public static final int BUFFER_SIZE = 65536;
+
+/**
+ * High bit of each byte of a long value
+ *
+ */
+
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+/**
+ * The character following the space character in each byte of a long value
+ *
+ */
+
+  private static final long PRINTABLE_BITS = 0x2121212121212121L;
+
+/**
+ * Source channel, null if the file is mapped
+ *
+ */
+
+  private ReadableByteChannel channel_;
+
+/**
+ * Mapped file, null if the bytes are read from a channel
+ *
+ */
+
+  private FileChannel file_;
+
+/**
+ * Size of the mapped windows of the file
+ *
+ */
+
+  private long window_size_;
+
+/**
+ * Position of the current window in the file
+ *
+ */
+
+  private long window_position_;
+
+/**
+ * Bytes which have been read, or the current window of the file
+ *
+ */
+
+  private ByteBuffer bytes_;
+
+/**
+ * Index of the next byte to decode
+ *
+ */
+
+  private int position_;
+
+/**
+ * True if all bytes have been read
+ *
+ */
+
+  private boolean is_end_;
+
+/**
+ * Size of new character buffers
+ *
+ */
+
+  private int buffer_size_;
+
+/**
+ * Shared character buffer for the lines
+ *
+ */
+
+  private char[] chars_;
+
+/**
+ * Count of used characters in the shared buffer
+ *
+ */
+
+  private int char_count_;
+
+/**
+ * Start indices of the words of the current line
+ *
+ */
+
+  private int[] words_ = new int[16];
+
+/**
+ * Number of words of the current line
+ *
+ */
+
+  private int word_count_;
+
+/**
+ * Length of the last decoded byte sequence
+ *
+ */
+
+  private int sequence_length_;
+
+//----------------------------------------------------------------------
+/**
+ * Constructors
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Creates a tokenizer reading from an input stream. The stream is not closed
+ * by the tokenizer.
+ * @param in input stream
+ */
+
+  public Tokenizer(InputStream in){
+    this(in, BUFFER_SIZE);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a tokenizer reading from an input stream. The stream is not closed
+ * by the tokenizer.
+ * @param in input stream
+ * @param buffer_size size of the byte buffer and of the shared character buffers
+ */
+
+  public Tokenizer(InputStream in, int buffer_size){
+    if(buffer_size < 16)
+      throw new IllegalArgumentException("Invalid buffer size: " + buffer_size);
+    channel_ = Channels.newChannel(in);
+    bytes_ = ByteBuffer.allocate(buffer_size).order(ByteOrder.LITTLE_ENDIAN);
+    bytes_.flip();
+    buffer_size_ = buffer_size;
+    chars_ = new char[buffer_size];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Creates a tokenizer which maps a file into memory in windows of the specified
+ * size and decodes the mapped bytes directly. The channel is not closed by
+ * the tokenizer.
+ * @param file file channel
+ * @param window_size maximal size of a mapped window
+ */
+
+  public Tokenizer(FileChannel file, long window_size){
+    if(window_size < 16 || window_size > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Invalid window size: " + window_size);
+    file_ = file;
+    window_size_ = window_size;
+    bytes_ = ByteBuffer.allocate(0);
+    buffer_size_ = BUFFER_SIZE;
+    chars_ = new char[BUFFER_SIZE];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Methods
+ *
+ */
+//----------------------------------------------------------------------
+
+//----------------------------------------------------------------------
+/**
+ * Reads and tokenizes the next line. Lines without any words are
+ * returned as well, with a word count of 0.
+ * @return boolean true if a line has been read, false at the end of the input
+ * @exception IOException if the input can not be read
+ */
+
+  public boolean nextLine() throws IOException{
+    word_count_ = 0;
+    boolean is_line = false;
+    boolean is_new_word = true;
+    while(true){
+      int limit = bytes_.limit();
+      int i = position_;
+
+          // the fast path: eight printable ASCII characters in a row
+      while(i + 8 <= limit){
+        long block = bytes_.getLong(i);
+        if(((block | (block - PRINTABLE_BITS)) & HIGH_BITS) != 0)
+          break;
+        if(is_new_word){
+          startWord(8);
+          is_new_word = false;
+        }else if(char_count_ + 8 > chars_.length)
+          newBuffer(8);
+        char[] chars = chars_;
+        int count = char_count_;
+        for(int shift = 0; shift < 64; shift += 8)
+          chars[count++] = (char) ((block >>> shift) & 0xff);
+        char_count_ = count;
+        i += 8;
+        is_line = true;
+      }
+      position_ = i;
+
+          // the slow path: one character
+      if(i == limit){
+        if(!fill() && position_ == bytes_.limit())
+          return is_line;
+        continue;
+      }
+      int c = bytes_.get(i) & 0xff;
+      if(c >= 0x80){
+        c = decode(i);
+        if(c == -1){
+
+              // the byte sequence continues in the next block
+          fill();
+          continue;
+        }
+        position_ = i + sequence_length_;
+      }else
+        position_ = i + 1;
+      is_line = true;
+      if(c == '\n')
+        return true;
+      if(Character.isWhitespace(c))
+        is_new_word = true;
+      else{
+        if(is_new_word){
+          startWord(2);
+          is_new_word = false;
+        }else if(char_count_ + 2 > chars_.length)
+          newBuffer(2);
+        char_count_ += Character.toChars(c, chars_, char_count_);
+      }
+    }
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the shared character buffer which holds the current line
+ * @return char[]
+ */
+
+  public char[] getChars(){
+    return chars_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the number of words of the current line
+ * @return int
+ */
+
+  public int getWordCount(){
+    return word_count_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index in the shared buffer where the current line starts
+ * @return int
+ */
+
+  public int getLineStart(){
+    return (word_count_ > 0) ? words_[0] : char_count_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index in the shared buffer where the current line ends (exclusive)
+ * @return int
+ */
+
+  public int getLineEnd(){
+    return char_count_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index in the shared buffer where the specified word starts
+ * @param word word index in the current line
+ * @return int
+ */
+
+  public int getWordStart(int word){
+    return words_[word];
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the index in the shared buffer where the specified word ends (exclusive)
+ * @param word word index in the current line
+ * @return int
+ */
+
+  public int getWordEnd(int word){
+    return (word == word_count_ - 1) ? char_count_ : words_[word + 1] - 1;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets a copy of the start indices of the words of the current line
+ * @return int[]
+ */
+
+  public int[] getWordStarts(){
+    return Arrays.copyOf(words_, word_count_);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets the specified word of the current line
+ * @param word word index in the current line
+ * @return String
+ */
+
+  public String getWord(int word){
+    return new String(chars_, words_[word], getWordEnd(word) - words_[word]);
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Gets all words of the current line
+ * @return String[]
+ */
+
+  public String[] getWords(){
+    String[] words = new String[word_count_];
+    for(int i = 0; i < word_count_; i++)
+      words[i] = getWord(i);
+    return words;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Starts a new word in the current line. The word delimiter is added
+ * unless this is the first word.
+ * @param length number of characters which must fit into the buffer after
+ * the word delimiter
+ * @return void
+ */
+
+  private void startWord(int length){
+    if(char_count_ + length + 1 > chars_.length)
+      newBuffer(length + 1);
+    if(word_count_ > 0)
+      chars_[char_count_++] = ' ';
+    if(word_count_ == words_.length)
+      words_ = Arrays.copyOf(words_, word_count_ * 2);
+    words_[word_count_++] = char_count_;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Starts a new shared character buffer. The characters of the current line
+ * are moved to the new buffer and the word indices are adjusted. The old
+ * buffer is not changed.
+ * @param length number of characters which must fit into the new buffer
+ * after the current line
+ * @return void
+ */
+
+  private void newBuffer(int length){
+    int line_start = getLineStart();
+    int line_length = char_count_ - line_start;
+    char[] chars = new char[Math.max(buffer_size_, line_length * 2 + length)];
+    System.arraycopy(chars_, line_start, chars, 0, line_length);
+    for(int i = 0; i < word_count_; i++)
+      words_[i] -= line_start;
+    chars_ = chars;
+    char_count_ = line_length;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Reads the next block of bytes, or maps the next window of the file. The
+ * bytes which have not been decoded yet are kept.
+ * @return boolean false if there are no more bytes to read
+ * @exception IOException if the input can not be read
+ */
+
+  private boolean fill() throws IOException{
+    if(is_end_)
+      return false;
+    if(file_ != null){
+      long size = file_.size();
+      if(window_position_ + bytes_.limit() >= size){
+        is_end_ = true;
+        return false;
+      }
+      window_position_ += position_;
+      int length = (int) Math.min(window_size_, size - window_position_);
+      bytes_ = file_.map(FileChannel.MapMode.READ_ONLY, window_position_, length);
+      bytes_.order(ByteOrder.LITTLE_ENDIAN);
+      position_ = 0;
+      return true;
+    }
+    bytes_.position(position_);
+    bytes_.compact();
+    int count = channel_.read(bytes_);
+    bytes_.flip();
+    position_ = 0;
+    if(count == -1){
+      is_end_ = true;
+      return false;
+    }
+    return true;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Decodes the UTF-8 byte sequence at the specified index. Malformed
+ * sequences are decoded as the replacement character, the maximal valid
+ * prefix of such a sequence is skipped. The length of the decoded sequence
+ * is kept in sequence_length_ field.
+ * @param index index of the first byte of the sequence
+ * @return int the code point, or -1 if the sequence continues in the next
+ * block of bytes
+ */
+
+  private int decode(int index){
+    int c = bytes_.get(index) & 0xff;
+    int length;
+    int min = 0x80;
+    int max = 0xbf;
+    if(c >= 0xc2 && c <= 0xdf){
+      length = 2;
+      c &= 0x1f;
+    }else if(c >= 0xe0 && c <= 0xef){
+      length = 3;
+      if(c == 0xe0)
+        min = 0xa0;
+      else if(c == 0xed)
+        max = 0x9f;
+      c &= 0x0f;
+    }else if(c >= 0xf0 && c <= 0xf4){
+      length = 4;
+      if(c == 0xf0)
+        min = 0x90;
+      else if(c == 0xf4)
+        max = 0x8f;
+      c &= 0x07;
+    }else{
+      sequence_length_ = 1;
+      return 0xfffd;
+    }
+    int limit = bytes_.limit();
+    for(int i = 1; i < length; i++){
+      if(index + i == limit){
+        if(!is_end_)
+          return -1;
+        sequence_length_ = i;
+        return 0xfffd;
+      }
+      int b = bytes_.get(index + i) & 0xff;
+      if(b < min || b > max){
+        sequence_length_ = i;
+        return 0xfffd;
+      }
+      c = (c << 6) | (b & 0x3f);
+      min = 0x80;
+      max = 0xbf;
+    }
+    sequence_length_ = length;
+    return c;
+  }
+
+//----------------------------------------------------------------------
+/**
+ * Inner classes
+ *
+ */
+//----------------------------------------------------------------------
+
+}